@@ -0,0 +1,23 @@
+// the measurement of one benchmark at one board size
+class BenchResult {
+  String name;
+  int size;
+  long ops;
+  double nanosPerOp;
+  double bytesPerOp;
+
+  // constructor
+  BenchResult(String name, int size, long ops, double nanosPerOp, double bytesPerOp) {
+    this.name = name;
+    this.size = size;
+    this.ops = ops;
+    this.nanosPerOp = nanosPerOp;
+    this.bytesPerOp = bytesPerOp;
+  }
+
+  // a table row for this result
+  public String toString() {
+    return String.format("%-16s %5dx%-5d %10d %16.1f %16.1f",
+        this.name, this.size, this.size, this.ops, this.nanosPerOp, this.bytesPerOp);
+  }
+}
@@ -0,0 +1,156 @@
+// the cells of a LightEmAll board in row-major order, however they are stored.
+// every cell has a wire mask (see Wires) and the powered and station flags,
+// and the grid neighbors of a cell are found by index arithmetic
+interface Board extends CellGraph {
+  // the number of columns
+  int width();
+
+  // the number of rows
+  int height();
+
+  // the wire mask of the given cell
+  int wires(int cell);
+
+  // replaces the wire mask of the given cell
+  void setWires(int cell, int mask);
+
+  // is the given cell powered?
+  boolean powered(int cell);
+
+  // sets whether the given cell is powered
+  void setPowered(int cell, boolean on);
+
+  // is the power station on the given cell?
+  boolean station(int cell);
+
+  // sets whether the power station is on the given cell
+  void setStation(int cell, boolean on);
+
+  // a board of the same size with this board's wires and station and no
+  // cell powered, which the original and the copy can change independently
+  Board copy();
+
+  // the metrics of a GameEngine on this board, by default measuring the tree
+  // its wires form now, with the distances on the heap
+  default TreeMetrics measure() {
+    return new TreeMetrics(this);
+  }
+
+  // a flood for a GameEngine on this board, by default one keeping its
+  // queue, depths and lit bits in arrays
+  default Flood flood() {
+    return new PowerFlood(this.size());
+  }
+
+  // the number of cells on this board
+  default int size() {
+    return this.width() * this.height();
+  }
+
+  // the index of the cell at the given row and column
+  default int index(int row, int col) {
+    return row * this.width() + col;
+  }
+
+  // the row of the given cell
+  default int row(int cell) {
+    return cell / this.width();
+  }
+
+  // the column of the given cell
+  default int col(int cell) {
+    return cell % this.width();
+  }
+
+  // the number of powered cells in the rows from top up to bottom
+  // and the columns from left up to right
+  default int poweredIn(int top, int left, int bottom, int right) {
+    int count = 0;
+    for (int row = top; row < bottom; row++) {
+      for (int cell = this.index(row, left); cell < this.index(row, right); cell++) {
+        if (this.powered(cell)) {
+          count += 1;
+        }
+      }
+    }
+    return count;
+  }
+
+  // rotates the given cell by 90 degrees clockwise
+  default void rotate(int cell) {
+    this.setWires(cell, Wires.rotate(this.wires(cell)));
+  }
+
+  // the cell next to the given one in the given direction,
+  // or -1 if that would be off the board
+  default int neighbor(int cell, int dir) {
+    int width = this.width();
+    int col = cell % width;
+    switch (dir) {
+      case Wires.TOP:
+        return cell >= width ? cell - width : -1;
+      case Wires.RIGHT:
+        return col < width - 1 ? cell + 1 : -1;
+      case Wires.BOTTOM:
+        return cell + width < this.size() ? cell + width : -1;
+      case Wires.LEFT:
+        return col > 0 ? cell - 1 : -1;
+      default:
+        throw new IllegalArgumentException("Not a direction: " + dir);
+    }
+  }
+
+  // writes the cells around the given one into out, returns how many there are
+  default int neighbors(int cell, int[] out) {
+    int count = 0;
+    for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+      int next = this.neighbor(cell, dir);
+      if (next >= 0) {
+        out[count++] = next;
+      }
+    }
+    return count;
+  }
+
+  // adds the wire from the given cell in the given direction and the wire
+  // of its neighbor that meets it, returns the neighbor
+  default int link(int cell, int dir) {
+    int other = this.neighbor(cell, dir);
+    if (other < 0) {
+      throw new IllegalArgumentException("Cell " + cell + " has no neighbor in direction " + dir);
+    }
+    this.setWires(cell, this.wires(cell) | dir);
+    this.setWires(other, this.wires(other) | Wires.opposite(dir));
+    return other;
+  }
+
+  // adds the wires joining two adjacent cells
+  default void join(int cell, int other) {
+    for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+      if (this.neighbor(cell, dir) == other) {
+        this.link(cell, dir);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("Cells " + cell + " and " + other + " are not adjacent");
+  }
+
+  // checks if the wire of the given cell in the given direction
+  // meets a wire of its neighbor
+  default boolean linked(int cell, int dir) {
+    int other = this.neighbor(cell, dir);
+    return other >= 0
+        && (this.wires(cell) & dir) != 0
+        && (this.wires(other) & Wires.opposite(dir)) != 0;
+  }
+
+  // checks if two cells are adjacent and connected to each other
+  default boolean connected(int cell, int other) {
+    for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+      if (this.neighbor(cell, dir) == other) {
+        return this.linked(cell, dir);
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// a saved game, i.e., a fixed header followed by the wire masks of every
+// cell and then the wire masks of the solved board, both packed two to a
+// byte by Wires.pack. files are read and written through a memory mapping,
+// so a board goes straight between the file and a PackedBoard.
+// the header holds, in order, as big-endian ints unless noted:
+//   magic "LEA1", version, width, height, station row, station column,
+//   radius, seed (a long), moves, time
+class BoardFile {
+  static final int MAGIC = 0x4C454131;
+  static final int VERSION = 1;
+  static final int HEADER = 9 * Integer.BYTES + Long.BYTES;
+
+  int width;
+  int height;
+  int stationRow;
+  int stationCol;
+  int radius;
+  long seed;
+  int moves;
+  int time;
+  // the game as it was saved, and the wires of its solved board
+  GameEngine game;
+  byte[] solution;
+
+  // constructor, for saving the given game with its solved wires
+  BoardFile(GameEngine game, byte[] solution, int time) {
+    if (solution == null || solution.length != (game.board.size() + 1) / 2) {
+      throw new IllegalArgumentException("A saved game needs the solved wires of all "
+          + game.board.size() + " cells");
+    }
+    this.width = game.board.width();
+    this.height = game.board.height();
+    this.stationRow = game.stationRow();
+    this.stationCol = game.stationCol();
+    this.radius = game.radius();
+    this.seed = game.seed;
+    this.moves = game.numMoves;
+    this.time = time;
+    this.game = game;
+    this.solution = solution;
+  }
+
+  // the size in bytes of the file of a width x height board
+  static long sizeFor(int width, int height) {
+    return HEADER + 2L * (((long) width * height + 1) / 2);
+  }
+
+  // writes this game to the given file, replacing it
+  void write(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+          BoardFile.sizeFor(this.width, this.height));
+      out.putInt(MAGIC).putInt(VERSION).putInt(this.width).putInt(this.height)
+          .putInt(this.stationRow).putInt(this.stationCol).putInt(this.radius)
+          .putLong(this.seed).putInt(this.moves).putInt(this.time);
+      out.put(Wires.pack(this.game.board));
+      out.put(this.solution);
+      out.force();
+    }
+  }
+
+  // reads the game saved in the given file, checking that its solved wires
+  // make a spanning tree and that every cell is a rotation of its solved self
+  static BoardFile read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER) {
+        throw new IOException(path + " is too short for a saved game");
+      }
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (in.getInt() != MAGIC) {
+        throw new IOException(path + " is not a saved game");
+      }
+      int version = in.getInt();
+      if (version != VERSION) {
+        throw new IOException(path + " has version " + version + ", expected " + VERSION);
+      }
+      int width = in.getInt();
+      int height = in.getInt();
+      if (width < 1 || height < 1 || channel.size() != BoardFile.sizeFor(width, height)) {
+        throw new IOException(path + " has " + channel.size() + " bytes, which doesn't fit a "
+            + width + "x" + height + " board");
+      }
+      int stationRow = in.getInt();
+      int stationCol = in.getInt();
+      int radius = in.getInt();
+      long seed = in.getLong();
+      int moves = in.getInt();
+      int time = in.getInt();
+      if (stationRow < 0 || stationRow >= height || stationCol < 0 || stationCol >= width) {
+        throw new IOException(path + " has its station off the board");
+      }
+      PackedBoard board = new PackedBoard(width, height);
+      byte[] current = new byte[(board.size() + 1) / 2];
+      byte[] solution = new byte[current.length];
+      in.get(current);
+      in.get(solution);
+      BoardFile.checkSolution(path, board, current, solution);
+      TreeMetrics tree = new TreeMetrics(board);
+      for (int cell = 0; cell < board.size(); cell++) {
+        board.setWires(cell, Wires.unpack(current, cell));
+      }
+      GameEngine game = new GameEngine(board, board.index(stationRow, stationCol), tree);
+      if (game.radius() != radius) {
+        throw new IOException(path + " has radius " + radius + " but its board has radius "
+            + game.radius());
+      }
+      game.seed = seed;
+      game.numMoves = moves;
+      game.solution = solution;
+      return new BoardFile(game, solution, time);
+    }
+  }
+
+  // throws if the solved wires aren't a spanning tree of the board or a cell
+  // isn't a rotation of its solved wires, leaves the solved wires on the board
+  static void checkSolution(Path path, PackedBoard board, byte[] current, byte[] solution)
+      throws IOException {
+    int ends = 0;
+    for (int cell = 0; cell < board.size(); cell++) {
+      int solved = Wires.unpack(solution, cell);
+      int mask = Wires.unpack(current, cell);
+      if (mask != solved && mask != Wires.rotate(solved, 1)
+          && mask != Wires.rotate(solved, 2) && mask != Wires.rotate(solved, 3)) {
+        throw new IOException(path + " has cell " + cell + " that isn't a rotation of its"
+            + " solved wires");
+      }
+      board.setWires(cell, solved);
+      ends += Integer.bitCount(solved);
+    }
+    for (int cell = 0; cell < board.size(); cell++) {
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        if ((board.wires(cell) & dir) != 0 && !board.linked(cell, dir)) {
+          throw new IOException(path + " has a solved wire from cell " + cell
+              + " that leads nowhere");
+        }
+      }
+    }
+    int reached = new PowerFlood(board.size()).run(board, 0, board.size());
+    if (ends != 2 * (board.size() - 1) || reached != board.size()) {
+      throw new IOException(path + " has solved wires that aren't a spanning tree");
+    }
+  }
+}
@@ -0,0 +1,12 @@
+// a graph over the cell indices 0 .. size - 1 of a board
+interface CellGraph {
+  // the number of cells
+  int size();
+
+  // writes the neighbors of the given cell into out, which must have room
+  // for at least four cells, and returns how many there are
+  int neighbors(int cell, int[] out);
+
+  // checks if the wires of two adjacent cells meet
+  boolean connected(int cell, int other);
+}
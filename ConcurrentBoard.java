@@ -0,0 +1,259 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// a board many threads can change at once without a lock, i.e., the wire
+// masks are packed eight to an int of an AtomicIntegerArray and every
+// change is a compare-and-set of the int holding the cell, so a cell is
+// never seen half rotated. the station is a single AtomicInteger, and the
+// powered cells are bits of an AtomicLongArray, set one at a time or
+// published whole by a CoopGame along with its PowerView. writers count
+// the changes they start and finish in one of several stripes, so writers
+// to unrelated cells rarely share a counter, and snapshot can still tell
+// whether a copy of the board saw a single moment of it. moving the
+// station holds the stripes of both its cells while it checks their wires,
+// so the only writers that ever wait are ones to those stripes meanwhile
+class ConcurrentBoard implements Board {
+  static final int PER_WORD = 8;
+  // the most times snapshot copies the board looking for a quiet moment
+  static final int ATTEMPTS = 16;
+  // the most stripes of counters, and the longs between two stripes' counters
+  // so that no two of them share a cache line
+  static final int MAX_STRIPES = 64;
+  static final int PAD = 8;
+
+  int width;
+  int height;
+  AtomicIntegerArray wires;
+  // the cell holding the power station, -1 if there is none
+  AtomicInteger station;
+  // the powered cells, 64 to a long, and the last PowerView published
+  AtomicLongArray powered;
+  volatile PowerView power;
+  // the wire changes begun and finished so far in every stripe, the int
+  // holding a cell counts in stripe word % stripes
+  int stripes;
+  AtomicLongArray started;
+  AtomicLongArray finished;
+  // 1 in every stripe a station move is holding
+  AtomicLongArray moving;
+  // the counters snapshot saw before copying, and the station it saw
+  long[] begun;
+  long[] done;
+  int seenStation;
+
+  // constructor
+  ConcurrentBoard(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Board must be at least 1x1, given "
+          + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.wires = new AtomicIntegerArray((width * height + PER_WORD - 1) / PER_WORD);
+    this.station = new AtomicInteger(-1);
+    this.powered = new AtomicLongArray((width * height + 63) >>> 6);
+    this.power = new PowerView(new long[this.powered.length()], 0, false);
+    this.stripes = ConcurrentBoard.stripesFor(this.wires.length());
+    this.started = new AtomicLongArray(this.stripes * PAD);
+    this.finished = new AtomicLongArray(this.stripes * PAD);
+    this.moving = new AtomicLongArray(this.stripes * PAD);
+    this.begun = new long[this.stripes];
+    this.done = new long[this.stripes];
+  }
+
+  // the number of stripes for a board of the given number of ints, a power
+  // of two near four per processor, but never more than there are ints
+  static int stripesFor(int words) {
+    int wanted = Math.min(MAX_STRIPES, 4 * Runtime.getRuntime().availableProcessors());
+    int stripes = Integer.highestOneBit(Math.max(1, Math.min(wanted, words)));
+    return stripes;
+  }
+
+  // constructor, copies the wires and station of the given board
+  ConcurrentBoard(Board board) {
+    this(board.width(), board.height());
+    for (int cell = 0; cell < board.size(); cell++) {
+      this.setWires(cell, board.wires(cell));
+      if (board.station(cell)) {
+        this.setStation(cell, true);
+      }
+    }
+  }
+
+  // the number of columns
+  public int width() {
+    return this.width;
+  }
+
+  // the number of rows
+  public int height() {
+    return this.height;
+  }
+
+  // the wire mask of the given cell
+  public int wires(int cell) {
+    return this.wires.get(cell / PER_WORD) >>> (cell % PER_WORD * 4) & Wires.ALL;
+  }
+
+  // replaces the wire mask of the given cell
+  public void setWires(int cell, int mask) {
+    this.update(cell, mask, false);
+  }
+
+  // rotates the given cell by 90 degrees clockwise in a single step
+  public void rotate(int cell) {
+    this.update(cell, 0, true);
+  }
+
+  // the counters of the stripe holding the given cell
+  int counter(int cell) {
+    return (cell / PER_WORD & (this.stripes - 1)) * PAD;
+  }
+
+  // sets the wires of the given cell to the given mask, or rotates them,
+  // retrying until no other thread changed the int holding the cell. a
+  // change started while a station move holds the stripe is counted as
+  // finished untouched and started again once the move is done
+  void update(int cell, int mask, boolean rotate) {
+    int word = cell / PER_WORD;
+    int shift = cell % PER_WORD * 4;
+    int counter = this.counter(cell);
+    this.started.incrementAndGet(counter);
+    while (this.moving.get(counter) != 0) {
+      this.finished.incrementAndGet(counter);
+      while (this.moving.get(counter) != 0) {
+        Thread.onSpinWait();
+      }
+      this.started.incrementAndGet(counter);
+    }
+    int old;
+    int next;
+    do {
+      old = this.wires.get(word);
+      int wires = rotate ? Wires.rotate(old >>> shift & Wires.ALL) : mask & Wires.ALL;
+      next = (old & ~(Wires.ALL << shift)) | wires << shift;
+    } while (!this.wires.compareAndSet(word, old, next));
+    this.finished.incrementAndGet(counter);
+  }
+
+  // is the given cell powered?
+  public boolean powered(int cell) {
+    return (this.powered.get(cell >>> 6) & (1L << cell)) != 0;
+  }
+
+  // sets whether the given cell is powered, retrying until no other thread
+  // changed the long holding it
+  public void setPowered(int cell, boolean on) {
+    long bit = 1L << cell;
+    long old;
+    do {
+      old = this.powered.get(cell >>> 6);
+    } while (!this.powered.compareAndSet(cell >>> 6, old, on ? old | bit : old & ~bit));
+  }
+
+  // powers exactly the cells of the given view and makes it the latest one
+  void publish(PowerView view) {
+    for (int word = 0; word < view.lit.length; word++) {
+      this.powered.set(word, view.lit[word]);
+    }
+    this.power = view;
+  }
+
+  // is the power station on the given cell?
+  public boolean station(int cell) {
+    return this.station.get() == cell;
+  }
+
+  // sets whether the power station is on the given cell
+  public void setStation(int cell, boolean on) {
+    if (on) {
+      this.station.set(cell);
+    }
+    else {
+      this.station.compareAndSet(cell, -1);
+    }
+  }
+
+  // moves the station from the given cell to its neighbor in the given
+  // direction if they are connected and no other thread moved it first.
+  // returns whether it moved. the stripes of both cells are held, lower
+  // one first, and every change under way in them is waited out, so their
+  // wires can't change between checking them and moving the station
+  boolean moveStation(int from, int dir) {
+    int next = from < 0 || dir == 0 ? -1 : this.neighbor(from, dir);
+    if (next < 0) {
+      return false;
+    }
+    int first = Math.min(this.counter(from), this.counter(next));
+    int second = Math.max(this.counter(from), this.counter(next));
+    this.hold(first);
+    if (second != first) {
+      this.hold(second);
+    }
+    try {
+      return this.connected(from, next) && this.station.compareAndSet(from, next);
+    }
+    finally {
+      this.moving.set(second, 0);
+      this.moving.set(first, 0);
+    }
+  }
+
+  // takes the given stripe for a station move, once no other move holds it,
+  // and waits until no change is under way in it
+  void hold(int counter) {
+    while (!this.moving.compareAndSet(counter, 0, 1)) {
+      Thread.onSpinWait();
+    }
+    while (this.started.get(counter) != this.finished.get(counter)) {
+      Thread.onSpinWait();
+    }
+  }
+
+  // a copy of this board's wires and station, with no cell powered
+  public ConcurrentBoard copy() {
+    return new ConcurrentBoard(this);
+  }
+
+  // whether no wire change is under way in any stripe
+  boolean quiet() {
+    for (int stripe = 0; stripe < this.stripes; stripe++) {
+      if (this.started.get(stripe * PAD) != this.finished.get(stripe * PAD)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // copies the wires of this board onto the given board of the
+  // same size and keeps the station in seenStation, returns whether the
+  // copy shows the board as it was at one moment, i.e., no stripe had a
+  // change under way when the copy began or began one while it was taken.
+  // the station is read while the wires are still, so it was there with
+  // them. after ATTEMPTS busy copies the last one is kept, in which every
+  // cell is still whole. only one thread may take snapshots at a time
+  boolean snapshot(PackedBoard into) {
+    boolean exact = false;
+    for (int attempt = 0; attempt < ATTEMPTS && !exact; attempt++) {
+      for (int stripe = 0; stripe < this.stripes; stripe++) {
+        this.done[stripe] = this.finished.get(stripe * PAD);
+        this.begun[stripe] = this.started.get(stripe * PAD);
+      }
+      for (int word = 0; word < this.wires.length(); word++) {
+        int packed = this.wires.get(word);
+        int last = Math.min(PER_WORD, into.size() - word * PER_WORD);
+        for (int i = 0; i < last; i++) {
+          into.setWires(word * PER_WORD + i, packed >>> (i * 4) & Wires.ALL);
+        }
+      }
+      this.seenStation = this.station.get();
+      exact = true;
+      for (int stripe = 0; stripe < this.stripes && exact; stripe++) {
+        exact = this.begun[stripe] == this.done[stripe]
+            && this.started.get(stripe * PAD) == this.begun[stripe];
+      }
+    }
+    return exact;
+  }
+}
@@ -0,0 +1,67 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// a game several players play on one board at once, i.e., any thread may
+// rotate cells on the shared ConcurrentBoard without taking a lock or move
+// the station, which holds only the stripes of its two cells while it does.
+// the power is flooded over a snapshot of the board and published as the
+// board's PowerView and powered cells. one thread refreshes at a time, the
+// others read the last view instead of waiting
+class CoopGame {
+  ConcurrentBoard board;
+  int radius;
+  // the snapshot and flood the refreshing thread works in
+  PackedBoard snapshot;
+  PowerFlood flood;
+  AtomicBoolean refreshing;
+
+  // constructor, shares the board of the given game
+  CoopGame(GameEngine game) {
+    this.board = new ConcurrentBoard(game.board);
+    this.radius = game.radius();
+    this.snapshot = new PackedBoard(game.board.width(), game.board.height());
+    this.flood = new PowerFlood(game.board.size());
+    this.refreshing = new AtomicBoolean();
+  }
+
+  // the latest view of the power, the one the board's powered reads
+  PowerView view() {
+    return this.board.power;
+  }
+
+  // rotates the given cell
+  void rotate(int cell) {
+    this.board.rotate(cell);
+  }
+
+  // moves the power station one cell in the given direction along a
+  // connected wire, unless another player moved it first. returns whether
+  // it moved, see ConcurrentBoard.moveStation
+  boolean moveStation(int dir) {
+    return this.board.moveStation(this.board.station.get(), dir);
+  }
+
+  // floods the power over a fresh snapshot and publishes it, unless another
+  // thread is already doing so. returns the latest view either way
+  PowerView refresh() {
+    if (!this.refreshing.compareAndSet(false, true)) {
+      return this.board.power;
+    }
+    try {
+      boolean exact = this.board.snapshot(this.snapshot);
+      int count = this.flood.run(this.snapshot, this.board.seenStation, this.radius);
+      PowerView view = new PowerView(this.flood.lit.clone(), count, exact);
+      this.board.publish(view);
+      return view;
+    }
+    finally {
+      this.refreshing.set(false);
+    }
+  }
+
+  // is every cell powered, as of the latest view? only a view of the board
+  // at a single moment counts, a torn one may light cells no real board did
+  boolean isSolved() {
+    PowerView view = this.board.power;
+    return view.exact && view.count == this.board.size();
+  }
+}
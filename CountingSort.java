@@ -0,0 +1,23 @@
+// orders small integer keys in linear time,
+// used to sort edges by weight since weights are drawn from [0, 100)
+final class CountingSort {
+  private CountingSort() {
+  }
+
+  // the indices 0 .. count - 1 ordered by their key, every key must be in
+  // [0, range). the sort is stable, so equal keys keep their original order
+  static int[] order(int[] keys, int count, int range) {
+    int[] starts = new int[range + 1];
+    for (int i = 0; i < count; i++) {
+      starts[keys[i] + 1] += 1;
+    }
+    for (int key = 0; key < range; key++) {
+      starts[key + 1] += starts[key];
+    }
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      order[starts[keys[i]]++] = i;
+    }
+    return order;
+  }
+}
@@ -0,0 +1,134 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+// a board kept outside the java heap, i.e., a single direct ByteBuffer holds
+// one byte per cell laid out like PackedBoard, followed by everything its
+// game keeps per cell: the lit bits, queue and depths of the power flood.
+// a GameEngine on a DirectBoard keeps only a few small objects on the heap,
+// so thousands of sessions don't add to the work of the garbage collector.
+// a buffer is indexed by int, so the board must fit in 2 GB, about 235
+// million cells
+class DirectBoard implements Board {
+  int width;
+  int height;
+  ByteBuffer memory;
+  ByteBuffer cells;
+  LongBuffer lit;
+  IntBuffer queue;
+  IntBuffer depth;
+
+  // constructor
+  DirectBoard(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Board must be at least 1x1, given "
+          + width + "x" + height);
+    }
+    long bytes = DirectBoard.bytesFor(width, height);
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("A " + width + "x" + height + " board needs "
+          + bytes + " bytes, more than one direct buffer holds");
+    }
+    int size = width * height;
+    int bits = (size + 7) & ~7;
+    int ints = bits + 8 * ((size + 63) >>> 6);
+    this.width = width;
+    this.height = height;
+    this.memory = ByteBuffer.allocateDirect((int) bytes);
+    this.cells = this.memory.slice(0, size);
+    this.lit = this.view(bits, ints - bits).asLongBuffer();
+    this.queue = this.view(ints, 4 * size).asIntBuffer();
+    this.depth = this.view(ints + 4 * size, 4 * size).asIntBuffer();
+  }
+
+  // constructor, copies the wires and station of the given board
+  DirectBoard(Board board) {
+    this(board.width(), board.height());
+    for (int cell = 0; cell < board.size(); cell++) {
+      this.setWires(cell, board.wires(cell));
+      if (board.station(cell)) {
+        this.setStation(cell, true);
+      }
+    }
+  }
+
+  // the bytes of direct memory a width x height board takes, counted in
+  // longs since big boards need more than an int holds
+  static long bytesFor(int width, int height) {
+    long size = (long) width * height;
+    return ((size + 7) & ~7) + 8 * ((size + 63) >>> 6) + 8 * size;
+  }
+
+  // the given bytes of the memory, in the order of this machine
+  ByteBuffer view(int offset, int length) {
+    return this.memory.slice(offset, length).order(ByteOrder.nativeOrder());
+  }
+
+  // the number of columns
+  public int width() {
+    return this.width;
+  }
+
+  // the number of rows
+  public int height() {
+    return this.height;
+  }
+
+  // the wire mask of the given cell
+  public int wires(int cell) {
+    return this.cells.get(cell) & Wires.ALL;
+  }
+
+  // replaces the wire mask of the given cell
+  public void setWires(int cell, int mask) {
+    this.cells.put(cell, (byte) ((this.cells.get(cell) & ~Wires.ALL) | (mask & Wires.ALL)));
+  }
+
+  // is the given cell powered?
+  public boolean powered(int cell) {
+    return (this.cells.get(cell) & PackedBoard.POWERED) != 0;
+  }
+
+  // sets whether the given cell is powered
+  public void setPowered(int cell, boolean on) {
+    this.setFlag(cell, PackedBoard.POWERED, on);
+  }
+
+  // is the power station on the given cell?
+  public boolean station(int cell) {
+    return (this.cells.get(cell) & PackedBoard.STATION) != 0;
+  }
+
+  // sets whether the power station is on the given cell
+  public void setStation(int cell, boolean on) {
+    this.setFlag(cell, PackedBoard.STATION, on);
+  }
+
+  // sets or clears the given flag bit of a cell
+  void setFlag(int cell, int flag, boolean on) {
+    int value = this.cells.get(cell);
+    this.cells.put(cell, (byte) (on ? value | flag : value & ~flag));
+  }
+
+  // measures the tree its wires form now, keeping the distances outside the
+  // java heap too
+  public TreeMetrics measure() {
+    return new TreeMetrics(this, TreeMetrics.direct(this.size()));
+  }
+
+  // a flood working in this board's memory
+  public DirectFlood flood() {
+    return new DirectFlood(this);
+  }
+
+  // a copy of this board's wires and station, with no cell powered and
+  // nothing flooded
+  public DirectBoard copy() {
+    DirectBoard copy = new DirectBoard(this.width, this.height);
+    for (int cell = 0; cell < this.size(); cell++) {
+      copy.cells.put(cell, (byte) (this.cells.get(cell) & ~PackedBoard.POWERED));
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,85 @@
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+// the Flood of a DirectBoard, whose lit bits, queue and depths are views
+// of the board's memory instead of arrays on the heap
+class DirectFlood implements Flood {
+  LongBuffer bits;
+  IntBuffer cells;
+  IntBuffer depths;
+  int[] adjacent;
+  // the number of cells lit by the last run, they are cells[0 .. count)
+  int count;
+
+  // constructor
+  DirectFlood(DirectBoard board) {
+    this.bits = board.lit;
+    this.cells = board.queue;
+    this.depths = board.depth;
+    this.adjacent = new int[4];
+  }
+
+  // lights the source and every cell connected to it at most radius steps
+  // away, returns how many cells are lit
+  public int run(CellGraph graph, int source, int radius) {
+    for (int i = 0; i < this.count; i++) {
+      int cell = this.cells.get(i);
+      this.bits.put(cell >>> 6, this.bits.get(cell >>> 6) & ~(1L << cell));
+    }
+    int head = 0;
+    int tail = 0;
+    this.cells.put(tail++, source);
+    this.light(source);
+    this.depths.put(source, 0);
+    while (head < tail) {
+      int cell = this.cells.get(head++);
+      int depth = this.depths.get(cell);
+      if (depth < radius) {
+        int neighbors = graph.neighbors(cell, this.adjacent);
+        for (int i = 0; i < neighbors; i++) {
+          int next = this.adjacent[i];
+          if (!this.lit(next) && graph.connected(cell, next)) {
+            this.light(next);
+            this.depths.put(next, depth + 1);
+            this.cells.put(tail++, next);
+          }
+        }
+      }
+    }
+    this.count = tail;
+    return tail;
+  }
+
+  // the number of cells lit by the last run
+  public int count() {
+    return this.count;
+  }
+
+  // the i-th cell lit by the last run
+  public int cell(int i) {
+    return this.cells.get(i);
+  }
+
+  // was the given cell lit by the last run?
+  public boolean lit(int cell) {
+    return (this.bits.get(cell >>> 6) & (1L << cell)) != 0;
+  }
+
+  // checks if all of the first size cells were lit by the last run,
+  // a word at a time
+  public boolean allLit(int size) {
+    int full = size >>> 6;
+    for (int word = 0; word < full; word++) {
+      if (this.bits.get(word) != -1L) {
+        return false;
+      }
+    }
+    long rest = (1L << (size & 63)) - 1;
+    return (size & 63) == 0 || (this.bits.get(full) & rest) == rest;
+  }
+
+  // marks the given cell as lit
+  void light(int cell) {
+    this.bits.put(cell >>> 6, this.bits.get(cell >>> 6) | 1L << cell);
+  }
+}
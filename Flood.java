@@ -0,0 +1,35 @@
+// a flood of power from the station across connected cells that stops at
+// the station's radius, keeping the cells it lit so a GameEngine can clear
+// them again. PowerFlood keeps its state in arrays, DirectFlood in the
+// memory of a DirectBoard and TiledFlood in the powered flags of a TiledBoard
+interface Flood {
+  // lights the source and every cell connected to it at most radius steps
+  // away, clearing the last run first, returns how many cells are lit
+  int run(CellGraph graph, int source, int radius);
+
+  // the number of cells lit by the last run
+  int count();
+
+  // the i-th cell lit by the last run, for i below count
+  int cell(int i);
+
+  // was the given cell lit by the last run?
+  boolean lit(int cell);
+
+  // checks if all of the first size cells were lit by the last run
+  boolean allLit(int size);
+
+  // unpowers the cells of the given board the last run lit, runs over the
+  // board and powers the cells it lights, returns how many are lit
+  default int power(Board board, int source, int radius) {
+    int cleared = this.count();
+    for (int i = 0; i < cleared; i++) {
+      board.setPowered(this.cell(i), false);
+    }
+    int lit = this.run(board, source, radius);
+    for (int i = 0; i < lit; i++) {
+      board.setPowered(this.cell(i), true);
+    }
+    return lit;
+  }
+}
@@ -0,0 +1,132 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+// wires one rectangle of the board into a spanning tree by cutting it into
+// quadrants at a random row and column, wiring every quadrant the same way
+// and then joining the quadrants across three of the four walls between
+// them. rectangles of at least FractalMaze.SEQUENTIAL cells are cut into
+// separate tasks, smaller ones are wired by the task that reaches them
+class QuadrantDivision extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  Board board;
+  int top;
+  int left;
+  int rows;
+  int cols;
+  SplittableRandom rand;
+
+  // constructor
+  QuadrantDivision(Board board, int top, int left, int rows, int cols, SplittableRandom rand) {
+    this.board = board;
+    this.top = top;
+    this.left = left;
+    this.rows = rows;
+    this.cols = cols;
+    this.rand = rand;
+  }
+
+  // wires the quadrants as separate tasks, then joins them. every quadrant
+  // gets its own generator split off before any of them runs, so the maze
+  // doesn't depend on how the tasks are scheduled
+  protected void compute() {
+    if (this.rows < 2 || this.cols < 2 || this.rows * this.cols < FractalMaze.SEQUENTIAL) {
+      this.divide(this.top, this.left, this.rows, this.cols);
+      return;
+    }
+    int upper = 1 + this.rand.nextInt(this.rows - 1);
+    int before = 1 + this.rand.nextInt(this.cols - 1);
+    RecursiveAction.invokeAll(
+        this.quadrant(this.top, this.left, upper, before),
+        this.quadrant(this.top, this.left + before, upper, this.cols - before),
+        this.quadrant(this.top + upper, this.left, this.rows - upper, before),
+        this.quadrant(this.top + upper, this.left + before, this.rows - upper,
+            this.cols - before));
+    this.joinQuadrants(this.top, this.left, this.rows, this.cols, upper, before);
+  }
+
+  // wires the given rectangle on this thread, dividing it the same way
+  void divide(int top, int left, int rows, int cols) {
+    if (rows * cols <= 1) {
+      return;
+    }
+    int upper = rows > 1 ? 1 + this.rand.nextInt(rows - 1) : rows;
+    int before = cols > 1 ? 1 + this.rand.nextInt(cols - 1) : cols;
+    this.divide(top, left, upper, before);
+    this.divide(top, left + before, upper, cols - before);
+    this.divide(top + upper, left, rows - upper, before);
+    this.divide(top + upper, left + before, rows - upper, cols - before);
+    this.joinQuadrants(top, left, rows, cols, upper, before);
+  }
+
+  // the task for the given quadrant, with a generator of its own
+  QuadrantDivision quadrant(int top, int left, int rows, int cols) {
+    return new QuadrantDivision(this.board, top, left, rows, cols, this.rand.split());
+  }
+
+  // joins the wired quadrants of the given rectangle, which was cut below
+  // its upper rows and after the columns before. a rectangle one cell wide
+  // only has two quadrants and a single wall between them
+  void joinQuadrants(int top, int left, int rows, int cols, int upper, int before) {
+    int middle = top + upper;
+    int center = left + before;
+    if (rows == 1) {
+      this.joinAcross(top, center, 1, 0);
+    }
+    else if (cols == 1) {
+      this.joinAcross(middle, left, 0, 1);
+    }
+    else {
+      int closed = this.rand.nextInt(4);
+      if (closed != 0) {
+        this.joinAcross(top, center, upper, 0);
+      }
+      if (closed != 1) {
+        this.joinAcross(middle, center, rows - upper, 0);
+      }
+      if (closed != 2) {
+        this.joinAcross(middle, left, 0, before);
+      }
+      if (closed != 3) {
+        this.joinAcross(middle, center, 0, cols - before);
+      }
+    }
+  }
+
+  // joins a random cell of a wall to the cell across it, i.e., a wall of
+  // the given number of rows left of the given cell, or of the given number
+  // of columns above it
+  void joinAcross(int row, int col, int rows, int cols) {
+    if (rows > 0) {
+      int cell = this.board.index(row + this.rand.nextInt(rows), col);
+      this.board.join(cell - 1, cell);
+    }
+    else {
+      int cell = this.board.index(row, col + this.rand.nextInt(cols));
+      this.board.join(cell - this.board.width(), cell);
+    }
+  }
+}
+
+// recursive division into quadrants, see QuadrantDivision, with the
+// quadrants split across a ForkJoinPool. every quadrant is joined to its
+// neighbors by single wires, so the maze is made of nested blocks
+class FractalMaze implements MazeGenerator {
+  // rectangles with fewer cells than this are wired by a single task
+  static final int SEQUENTIAL = 1 << 14;
+
+  ForkJoinPool pool;
+
+  // constructor
+  FractalMaze(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  // wires the whole board as one rectangle
+  public void generate(Board board, RandomGenerator rand) {
+    this.pool.invoke(new QuadrantDivision(board, 0, 0, board.height(), board.width(),
+        new SplittableRandom(rand.nextLong())));
+  }
+}
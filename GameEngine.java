@@ -0,0 +1,324 @@
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+// the rules of LightEmAll without any rendering, i.e., rotating cells,
+// moving the power station and lighting the board, played on any Board.
+// nothing here depends on javalib, so games can run headless
+class GameEngine {
+  Board board;
+  // the cell holding the power station
+  int station;
+  // the power radius and the shape of the board's tree, measured once
+  TreeMetrics metrics;
+  GridBfs bfs;
+  // the cells lit by the last update, and whether a move may have changed them
+  Flood flood;
+  int poweredCount;
+  boolean powerDirty;
+  int numMoves;
+  // the number of clock ticks the game has seen
+  int ticks;
+  // everything done to the game, see MoveJournal
+  MoveJournal journal;
+  // counts the changes made to the board, so views can tell when to redraw
+  int version;
+  // the seed the board was generated from, 0 if it wasn't, and the wires of
+  // the solved board packed by Wires.pack, null if they aren't known
+  long seed;
+  byte[] solution;
+  // scratch space for the neighbors of a cell
+  int[] adjacent;
+  // the cells power updates touched while Metrics were on
+  long visited;
+
+  // constructor, puts the power station on the given cell
+  GameEngine(Board board, int station) {
+    this(board, station, null);
+  }
+
+  // constructor, for a board already measured by the given metrics, or
+  // measuring the wires it has now if they are null (see Board.measure)
+  GameEngine(Board board, int station, TreeMetrics metrics) {
+    this.board = board;
+    this.station = station;
+    this.board.setStation(station, true);
+    this.metrics = metrics != null ? metrics : board.measure();
+    this.flood = board.flood();
+    this.powerDirty = true;
+    this.numMoves = 0;
+    this.journal = new MoveJournal();
+    this.adjacent = new int[4];
+  }
+
+  // generates a shuffled width x height game with the station in the top
+  // left corner, drawing everything from the given generator
+  static GameEngine generate(int width, int height, Random rand) {
+    return GameEngine.generate(width, height, rand, 100);
+  }
+
+  // generates a width x height game that only shuffles about the given
+  // percent of its cells, so lower percents make easier puzzles
+  static GameEngine generate(int width, int height, Random rand, int percent) {
+    return GameEngine.generate(width, height, new KruskalMaze(), rand, rand, percent);
+  }
+
+  // generates a shuffled width x height game from the given seed,
+  // remembering the seed
+  static GameEngine generate(int width, int height, long seed) {
+    return GameEngine.generate(width, height, seed, 100);
+  }
+
+  // generates a width x height game from the given seed, shuffling about
+  // the given percent of its cells. the same seed and size always give the
+  // same maze, see SeedStreams
+  static GameEngine generate(int width, int height, long seed, int percent) {
+    return GameEngine.generate(width, height, seed, percent, new KruskalMaze());
+  }
+
+  // generates a game from the given seed whose maze is wired by the given
+  // generator
+  static GameEngine generate(int width, int height, long seed, int percent,
+      MazeGenerator generator) {
+    SeedStreams streams = new SeedStreams(seed);
+    GameEngine game = GameEngine.generate(width, height, generator, streams.maze,
+        streams.shuffle, percent);
+    game.seed = seed;
+    return game;
+  }
+
+  // generates a game whose maze is wired by the given generator drawing from
+  // the one random and whose shuffle is drawn from the other
+  static GameEngine generate(int width, int height, MazeGenerator generator,
+      RandomGenerator maze, RandomGenerator shuffle, int percent) {
+    Metrics metrics = Metrics.active;
+    long start = metrics == null ? 0 : System.nanoTime();
+    PackedBoard packed = PackedBoard.generate(width, height, maze, generator);
+    byte[] solution = Wires.pack(packed);
+    if (metrics != null) {
+      start = metrics.lap(Metrics.MAZE, start);
+    }
+    TreeMetrics tree = new TreeMetrics(packed);
+    if (metrics != null) {
+      start = metrics.lap(Metrics.MEASURE, start);
+    }
+    for (int cell = 0; cell < packed.size(); cell++) {
+      if (percent >= 100 || shuffle.nextInt(100) < percent) {
+        packed.setWires(cell, Wires.rotate(packed.wires(cell), shuffle.nextInt(4)));
+      }
+    }
+    if (metrics != null) {
+      metrics.lap(Metrics.SHUFFLE, start);
+    }
+    GameEngine game = new GameEngine(packed, 0, tree);
+    game.solution = solution;
+    return game;
+  }
+
+  // the search over the board's cells, made on first use
+  GridBfs bfs() {
+    if (this.bfs == null) {
+      this.bfs = new GridBfs(this.board.size());
+    }
+    return this.bfs;
+  }
+
+  // the radius the power station reaches
+  int radius() {
+    return this.metrics.radius;
+  }
+
+  // the row of the power station
+  int stationRow() {
+    return this.board.row(this.station);
+  }
+
+  // the column of the power station
+  int stationCol() {
+    return this.board.col(this.station);
+  }
+
+  // rotates the cell at the given row and column by 90 degrees
+  void rotate(int row, int col) {
+    int cell = this.board.index(row, col);
+    this.turn(cell, 1);
+    this.numMoves += 1;
+    this.journal.moved(MoveJournal.event(MoveJournal.ROTATE, cell));
+  }
+
+  // rotates the given cell clockwise the given number of times. the power
+  // only needs flooding again if the cell was powered or now touches a
+  // powered cell, otherwise the next update is free
+  void turn(int cell, int times) {
+    for (int i = 0; i < times; i++) {
+      this.board.rotate(cell);
+    }
+    this.version += 1;
+    if (this.board.powered(cell)) {
+      this.powerDirty = true;
+      return;
+    }
+    int neighbors = this.board.neighbors(cell, this.adjacent);
+    for (int i = 0; i < neighbors; i++) {
+      int next = this.adjacent[i];
+      if (this.board.powered(next) && this.board.connected(cell, next)) {
+        this.powerDirty = true;
+        return;
+      }
+    }
+  }
+
+  // moves the power station one cell in the given direction (see Wires),
+  // which only works along a connected wire. returns whether it moved
+  boolean moveStation(int dir) {
+    if (!this.shiftStation(dir)) {
+      return false;
+    }
+    this.numMoves += 1;
+    this.journal.moved(MoveJournal.event(MoveJournal.STATION, dir));
+    return true;
+  }
+
+  // moves the power station without counting or logging the move
+  boolean shiftStation(int dir) {
+    if (dir == 0) {
+      return false;
+    }
+    int next = this.board.neighbor(this.station, dir);
+    if (next < 0 || !this.board.connected(next, this.station)) {
+      return false;
+    }
+    this.board.setStation(this.station, false);
+    this.board.setStation(next, true);
+    this.station = next;
+    this.version += 1;
+    this.powerDirty = true;
+    return true;
+  }
+
+  // takes back the last move that wasn't taken back yet, by rotating its
+  // cell back or moving the station back. returns whether there was one
+  boolean undo() {
+    long move = this.journal.undo();
+    if (move < 0) {
+      return false;
+    }
+    if (MoveJournal.kind(move) == MoveJournal.ROTATE) {
+      this.turn(MoveJournal.payload(move), 3);
+    }
+    else {
+      this.shiftStation(Wires.opposite(MoveJournal.payload(move)));
+    }
+    this.numMoves -= 1;
+    return true;
+  }
+
+  // makes the last move taken back again, returns whether there was one
+  boolean redo() {
+    long move = this.journal.redo();
+    if (move < 0) {
+      return false;
+    }
+    if (MoveJournal.kind(move) == MoveJournal.ROTATE) {
+      this.turn(MoveJournal.payload(move), 1);
+    }
+    else {
+      this.shiftStation(MoveJournal.payload(move));
+    }
+    this.numMoves += 1;
+    return true;
+  }
+
+  // counts a tick of the game clock
+  void tick() {
+    this.ticks += 1;
+    this.journal.tick();
+  }
+
+  // a copy of this game on a copy of its board (see Board.copy), sharing
+  // the measurements, which don't change, and starting a new journal
+  GameEngine copy() {
+    return this.copyOnto(this.board.copy(), this.metrics);
+  }
+
+  // a copy of this game on a DirectBoard, so neither its cells nor anything
+  // measured per cell are on the heap
+  GameEngine offHeap() {
+    if (this.board instanceof DirectBoard) {
+      return this.copy();
+    }
+    return this.copyOnto(new DirectBoard(this.board), this.metrics.offHeap());
+  }
+
+  // a copy of this game on the given copy of its board, starting a new journal
+  GameEngine copyOnto(Board board, TreeMetrics metrics) {
+    GameEngine copy = new GameEngine(board, this.station, metrics);
+    copy.seed = this.seed;
+    copy.solution = this.solution;
+    copy.numMoves = this.numMoves;
+    copy.ticks = this.ticks;
+    return copy;
+  }
+
+  // forgets the powered cells, so the next update floods the board again
+  void invalidate() {
+    this.powerDirty = true;
+  }
+
+  // brings the powered cells up to date if anything changed since the last
+  // update by unpowering the cells that were lit before and flooding from
+  // the station again. an update without moves costs nothing, but one after
+  // a move that matters costs O(cells lit before + cells lit after), however
+  // few cells the move itself changed
+  void refresh() {
+    if (!this.powerDirty) {
+      return;
+    }
+    Metrics metrics = Metrics.active;
+    long start = metrics == null ? 0 : System.nanoTime();
+    int cleared = this.flood.count();
+    this.poweredCount = this.flood.power(this.board, this.station, this.metrics.radius);
+    this.powerDirty = false;
+    this.version += 1;
+    if (metrics != null) {
+      metrics.lap(Metrics.POWER, start);
+      metrics.cellsVisited.add(cleared + this.poweredCount);
+      this.visited += cleared + this.poweredCount;
+    }
+  }
+
+  // the number of powered cells
+  int poweredCount() {
+    this.refresh();
+    return this.poweredCount;
+  }
+
+  // is the given cell powered? read from the flood's bitset
+  boolean powered(int cell) {
+    this.refresh();
+    return this.flood.lit(cell);
+  }
+
+  // the share of the board that is powered, in whole percent
+  int percentLit() {
+    return (int) (this.poweredCount() * 100L / this.board.size());
+  }
+
+  // finds the clicks every cell needs to wire the board into a tree,
+  // and whether those are the only ones that do, see Solver
+  Solver solve() {
+    Solver solver = new Solver(this.board);
+    solver.solve(2);
+    return solver;
+  }
+
+  // is every cell powered?
+  boolean isSolved() {
+    Metrics metrics = Metrics.active;
+    long start = metrics == null ? 0 : System.nanoTime();
+    boolean solved = this.poweredCount() == this.board.size();
+    if (metrics != null) {
+      metrics.lap(Metrics.WIN, start);
+    }
+    return solved;
+  }
+}
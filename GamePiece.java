@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import javalib.worldimages.*;
+
+class GamePiece {
+  // in logical coordinates, with the origin
+  // at the top-left corner of the screen
+  int row;
+  int col;
+  // whether this GamePiece is isConnected to the
+  // adjacent left, right, top, or bottom pieces
+  boolean left;
+  boolean right;
+  boolean top;
+  boolean bottom;
+  // whether the power station is on this piece
+  boolean powerStation;
+
+  boolean powered;
+  int depth;
+  ArrayList<GamePiece> neighbors;
+
+  // constructor
+  GamePiece(int row, int col, boolean left, boolean right, boolean top, boolean bottom,
+      boolean powerStation, boolean powered, int depth) {
+    this.row = row;
+    this.col = col;
+    this.left = left;
+    this.right = right;
+    this.top = top;
+    this.bottom = bottom;
+    this.powerStation = powerStation;
+    this.powered = powered;
+    this.depth = depth;
+    this.neighbors = new ArrayList<GamePiece>();
+  }
+
+  public void rotateRandomly(int nextInt) {
+    for (int i = 0; i < nextInt; i++) {
+      this.rotateHelp();
+    }
+  }
+
+  // Convince constructor
+  GamePiece(int row, int col) {
+    this.row = row;
+    this.col = col;
+    this.left = false;
+    this.right = false;
+    this.top = false;
+    this.bottom = false;
+    this.powerStation = false;
+    this.powered = false;
+    this.depth = 1;
+    this.neighbors = new ArrayList<GamePiece>();
+  }
+
+  // draws a piece based on a pieces attributes
+  WorldImage drawPiece(int sizeOfCell) {
+    return TileCache.draw(this.wires(), this.powered, this.powerStation, sizeOfCell);
+  }
+
+  // rotates the given game piece by 90 degrees
+  void rotateHelp() {
+    boolean left = this.left;
+    boolean right = this.right;
+    boolean top = this.top;
+    boolean bottom = this.bottom;
+
+    this.bottom = right;
+    this.left = bottom;
+    this.top = left;
+    this.right = top;
+  }
+
+  // the wires of this piece as a mask, see Wires
+  int wires() {
+    int mask = 0;
+    if (this.top) {
+      mask |= Wires.TOP;
+    }
+    if (this.right) {
+      mask |= Wires.RIGHT;
+    }
+    if (this.bottom) {
+      mask |= Wires.BOTTOM;
+    }
+    if (this.left) {
+      mask |= Wires.LEFT;
+    }
+    return mask;
+  }
+
+  // sets the wires of this piece from a mask, see Wires
+  void setWires(int mask) {
+    this.top = (mask & Wires.TOP) != 0;
+    this.right = (mask & Wires.RIGHT) != 0;
+    this.bottom = (mask & Wires.BOTTOM) != 0;
+    this.left = (mask & Wires.LEFT) != 0;
+  }
+
+  // finds the neighbors for a piece
+  void findNeighbors(ArrayList<ArrayList<GamePiece>> board) {
+    int width = board.size();
+
+    int height = board.get(0).size();
+
+    if (this.row < width - 1) {
+      GamePiece toAdd = board.get(this.row + 1).get(this.col);
+      this.neighbors.add(toAdd);
+    }
+    if (this.col < height - 1) {
+      GamePiece toAdd = board.get(this.row).get(this.col + 1);
+      this.neighbors.add(toAdd);
+    }
+    if (this.row > 0) {
+      GamePiece toAdd = board.get(this.row - 1).get(this.col);
+      this.neighbors.add(toAdd);
+    }
+    if (this.col > 0) {
+      GamePiece toAdd = board.get(this.row).get(this.col - 1);
+      this.neighbors.add(toAdd);
+    }
+  }
+
+  // lights up a cell if it is on, one ring of neighbors at a time
+  // so long wires can't overflow the stack
+  void lightUp(int radius) {
+    if (this.powered) {
+      ArrayList<GamePiece> frontier = new ArrayList<GamePiece>(Arrays.asList(this));
+      for (int steps = radius; steps > 0 && !frontier.isEmpty(); steps--) {
+        ArrayList<GamePiece> next = new ArrayList<GamePiece>();
+        for (GamePiece current : frontier) {
+          for (GamePiece currentNeighbor : current.neighbors) {
+            if (currentNeighbor.isConnected(current) && !currentNeighbor.powered) {
+              currentNeighbor.powered = true;
+              next.add(currentNeighbor);
+            }
+          }
+        }
+        frontier = next;
+      }
+    }
+  }
+
+  // checks if a game piece is connected to another game piece
+  boolean isConnected(GamePiece other) {
+    if (this.row == other.row + 1 && this.col == other.col) {
+      return this.top && other.bottom;
+    }
+
+    if (this.row == other.row - 1 && this.col == other.col) {
+      return this.bottom && other.top;
+    }
+
+    if (this.col == other.col + 1 && this.row == other.row) {
+      return this.left && other.right;
+    }
+
+    if (this.col == other.col - 1 && this.row == other.row) {
+      return this.right && other.left;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,186 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// one game hosted by a GameServer, played only by its own mailbox, i.e.,
+// commands from any thread are queued and run one at a time on the server's
+// workers, at most one worker at a time, so a session never takes a lock
+// and sessions never wait on each other
+class GameSession implements Runnable {
+  // the most commands run before the worker moves on to other sessions
+  static final int BATCH = 64;
+
+  final int id;
+  GameEngine game;
+  ConcurrentLinkedQueue<SessionCommand> mailbox;
+  // whether the session is queued on or running on a worker
+  AtomicBoolean scheduled;
+  Executor workers;
+
+  // constructor
+  GameSession(int id, GameEngine game, Executor workers) {
+    this.id = id;
+    this.game = game;
+    this.mailbox = new ConcurrentLinkedQueue<SessionCommand>();
+    this.scheduled = new AtomicBoolean();
+    this.workers = workers;
+  }
+
+  // queues the given command, scheduling the session unless it already is
+  void send(SessionCommand command) {
+    this.mailbox.offer(command);
+    if (this.scheduled.compareAndSet(false, true)) {
+      this.workers.execute(this);
+    }
+  }
+
+  // runs a batch of queued commands, then schedules the session again
+  // if more arrived in the meantime
+  public void run() {
+    for (int i = 0; i < BATCH; i++) {
+      SessionCommand command = this.mailbox.poll();
+      if (command == null) {
+        break;
+      }
+      try {
+        command.complete(this.apply(command.event));
+      }
+      catch (RuntimeException e) {
+        command.completeExceptionally(e);
+      }
+    }
+    this.scheduled.set(false);
+    if (!this.mailbox.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+      this.workers.execute(this);
+    }
+  }
+
+  // plays the given event, returns the number of powered cells after it,
+  // or -1 if it changed nothing
+  int apply(long event) {
+    int payload = MoveJournal.payload(event);
+    boolean changed = true;
+    switch (MoveJournal.kind(event)) {
+      case MoveJournal.ROTATE:
+        if (payload < 0 || payload >= this.game.board.size()) {
+          throw new IllegalArgumentException("Session " + this.id + " has no cell " + payload);
+        }
+        this.game.rotate(this.game.board.row(payload), this.game.board.col(payload));
+        break;
+      case MoveJournal.STATION:
+        changed = this.game.moveStation(payload);
+        break;
+      case MoveJournal.TICK:
+        for (int tick = 0; tick < Math.max(1, payload); tick++) {
+          this.game.tick();
+        }
+        break;
+      case MoveJournal.UNDO:
+        changed = this.game.undo();
+        break;
+      case MoveJournal.REDO:
+        changed = this.game.redo();
+        break;
+      default:
+        throw new IllegalArgumentException("Event " + event + " is of no known kind");
+    }
+    return changed ? this.game.poweredCount() : -1;
+  }
+}
+
+// hosts many independent games at once behind an in-process api, i.e.,
+// every game is a GameSession with its own mailbox and a small pool of
+// workers runs whichever sessions have commands waiting. commands return
+// futures, so callers can wait for them or not
+class GameServer {
+  ForkJoinPool workers;
+  ConcurrentHashMap<Integer, GameSession> sessions;
+  AtomicInteger nextId;
+  // whether sessions opened from a PuzzleKey keep their boards off the heap
+  boolean offHeap;
+
+  // constructor, for the given number of worker threads
+  GameServer(int threads) {
+    this(threads, false);
+  }
+
+  // constructor, for the given number of worker threads, putting the boards
+  // of generated sessions on DirectBoards if offHeap is set
+  GameServer(int threads, boolean offHeap) {
+    this.offHeap = offHeap;
+    this.workers = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+        null, true);
+    this.sessions = new ConcurrentHashMap<Integer, GameSession>();
+    this.nextId = new AtomicInteger();
+  }
+
+  // starts a session playing the given game, returns its id
+  int open(GameEngine game) {
+    int id = this.nextId.getAndIncrement();
+    this.sessions.put(id, new GameSession(id, game, this.workers));
+    return id;
+  }
+
+  // starts a session playing the puzzle of the given kind made from the
+  // given seed, returns its id
+  int open(PuzzleKey key, long seed) {
+    GameEngine game = key.generate(seed);
+    return this.open(this.offHeap ? game.offHeap() : game);
+  }
+
+  // ends the given session, returns its game or null if there was none.
+  // commands already queued still run
+  GameEngine close(int session) {
+    GameSession closed = this.sessions.remove(session);
+    return closed == null ? null : closed.game;
+  }
+
+  // the number of open sessions
+  int sessionCount() {
+    return this.sessions.size();
+  }
+
+  // sends the given event to the given session, the command fails
+  // if there is no such session
+  SessionCommand send(int session, long event) {
+    SessionCommand command = new SessionCommand(event);
+    GameSession target = this.sessions.get(session);
+    if (target == null) {
+      command.completeExceptionally(new IllegalArgumentException("No session " + session));
+    }
+    else {
+      target.send(command);
+    }
+    return command;
+  }
+
+  // rotates the given cell of the given session
+  SessionCommand rotate(int session, int cell) {
+    return this.send(session, MoveJournal.event(MoveJournal.ROTATE, cell));
+  }
+
+  // moves the power station of the given session in the given direction
+  SessionCommand moveStation(int session, int dir) {
+    return this.send(session, MoveJournal.event(MoveJournal.STATION, dir));
+  }
+
+  // takes back the last move of the given session
+  SessionCommand undo(int session) {
+    return this.send(session, MoveJournal.event(MoveJournal.UNDO, 0));
+  }
+
+  // makes the last move taken back in the given session again
+  SessionCommand redo(int session) {
+    return this.send(session, MoveJournal.event(MoveJournal.REDO, 0));
+  }
+
+  // stops the workers, waiting up to the given time for queued commands
+  boolean shutdown(long millis) throws InterruptedException {
+    this.workers.shutdown();
+    return this.workers.awaitTermination(millis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,65 @@
+import java.util.Arrays;
+
+// breadth-first search over the cells of a CellGraph, reusing its queue,
+// visited set and distances between runs so a search allocates nothing
+class GridBfs {
+  int[] queue;
+  long[] visited;
+  int[] dist;
+  int[] adjacent;
+  // results of the last run
+  int farthest;
+  int eccentricity;
+  int reached;
+
+  // constructor, for graphs of up to the given number of cells
+  GridBfs(int size) {
+    this.queue = new int[size];
+    this.visited = new long[(size + 63) >>> 6];
+    this.dist = new int[size];
+    this.adjacent = new int[4];
+  }
+
+  // searches the graph from the given cell, returns the cell that was
+  // reached last, i.e., one of the cells farthest away from the source.
+  // the distance to it is left in eccentricity and the distance to every
+  // reached cell in dist
+  int run(CellGraph graph, int source) {
+    if (graph.size() > this.queue.length) {
+      throw new IllegalArgumentException("Graph of " + graph.size()
+          + " cells does not fit a search over " + this.queue.length);
+    }
+    Arrays.fill(this.visited, 0L);
+    int head = 0;
+    int tail = 0;
+    this.queue[tail++] = source;
+    this.visit(source);
+    this.dist[source] = 0;
+    while (head < tail) {
+      int cell = this.queue[head++];
+      int count = graph.neighbors(cell, this.adjacent);
+      for (int i = 0; i < count; i++) {
+        int next = this.adjacent[i];
+        if (!this.visited(next)) {
+          this.visit(next);
+          this.dist[next] = this.dist[cell] + 1;
+          this.queue[tail++] = next;
+        }
+      }
+    }
+    this.reached = tail;
+    this.farthest = this.queue[tail - 1];
+    this.eccentricity = this.dist[this.farthest];
+    return this.farthest;
+  }
+
+  // was the given cell reached by the last run?
+  boolean visited(int cell) {
+    return (this.visited[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // marks the given cell as reached
+  void visit(int cell) {
+    this.visited[cell >>> 6] |= 1L << cell;
+  }
+}
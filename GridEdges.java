@@ -0,0 +1,61 @@
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+// every edge of a width x height grid exactly once, kept in primitive arrays,
+// i.e., edge i joins cell from[i] to cell to[i] with the given weight.
+// each cell contributes the edge to its right neighbor and the edge to the
+// neighbor below it, so no edge has to be checked for duplicates
+class GridEdges {
+  // edge weights are drawn from [0, MAX_WEIGHT)
+  static final int MAX_WEIGHT = 100;
+
+  int width;
+  int height;
+  int count;
+  int[] from;
+  int[] to;
+  int[] weight;
+
+  // constructor, draws every weight from the given generator in edge order
+  GridEdges(int width, int height, RandomGenerator rand) {
+    this.width = width;
+    this.height = height;
+    this.count = GridEdges.countFor(width, height);
+    this.from = new int[this.count];
+    this.to = new int[this.count];
+    this.weight = new int[this.count];
+    int next = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int cell = row * width + col;
+        if (col < width - 1) {
+          this.from[next] = cell;
+          this.to[next] = cell + 1;
+          this.weight[next] = rand.nextInt(MAX_WEIGHT);
+          next += 1;
+        }
+        if (row < height - 1) {
+          this.from[next] = cell;
+          this.to[next] = cell + width;
+          this.weight[next] = rand.nextInt(MAX_WEIGHT);
+          next += 1;
+        }
+      }
+    }
+  }
+
+  // the number of edges in a width x height grid
+  static int countFor(int width, int height) {
+    return (width - 1) * height + width * (height - 1);
+  }
+
+  // the ids of all edges in the order they were generated
+  IntStream ids() {
+    return IntStream.range(0, this.count);
+  }
+
+  // the ids of all edges from lightest to heaviest, ties keep generation order
+  int[] byWeight() {
+    return CountingSort.order(this.weight, this.count, MAX_WEIGHT);
+  }
+}
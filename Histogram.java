@@ -0,0 +1,84 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// a histogram of non-negative values in log-linear buckets, the way
+// HdrHistogram keeps them, i.e., every power of two is split into 32 equal
+// buckets, so a value is known to within about 3% whatever its size.
+// recording only increments atomics, so any number of threads can record
+// at once without a lock
+class Histogram {
+  // the number of bits of a value kept below its highest bit
+  static final int SUB_BITS = 5;
+  static final int SUB = 1 << SUB_BITS;
+  static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+  AtomicLongArray counts;
+  LongAdder count;
+  LongAdder sum;
+  AtomicLong max;
+
+  // constructor
+  Histogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new LongAdder();
+    this.sum = new LongAdder();
+    this.max = new AtomicLong();
+  }
+
+  // the bucket of the given value, negative values count as 0
+  static int bucket(long value) {
+    if (value < SUB) {
+      return (int) Math.max(value, 0);
+    }
+    int high = 63 - Long.numberOfLeadingZeros(value);
+    return (high - SUB_BITS + 1) * SUB + (int) ((value >>> (high - SUB_BITS)) & (SUB - 1));
+  }
+
+  // the smallest value in the given bucket
+  static long lowest(int bucket) {
+    if (bucket < SUB) {
+      return bucket;
+    }
+    int high = bucket / SUB + SUB_BITS - 1;
+    return (long) (SUB + bucket % SUB) << (high - SUB_BITS);
+  }
+
+  // records one value
+  void record(long value) {
+    this.counts.incrementAndGet(Histogram.bucket(value));
+    this.count.increment();
+    this.sum.add(value);
+    this.max.accumulateAndGet(value, Math::max);
+  }
+
+  // the number of values recorded
+  long count() {
+    return this.count.sum();
+  }
+
+  // the mean of the values recorded, 0 if there are none
+  double mean() {
+    long count = this.count();
+    return count == 0 ? 0 : (double) this.sum.sum() / count;
+  }
+
+  // the value that the given percent of the recorded values are at most,
+  // rounded up to the end of its bucket, 0 if nothing was recorded
+  long percentile(double percent) {
+    long total = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      total += this.counts.get(bucket);
+    }
+    long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS && total > 0; bucket++) {
+      seen += this.counts.get(bucket);
+      if (seen >= rank) {
+        long end = bucket + 1 < BUCKETS ? Histogram.lowest(bucket + 1) - 1 : Long.MAX_VALUE;
+        return Math.min(end, this.max.get());
+      }
+    }
+    return 0;
+  }
+}
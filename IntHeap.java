@@ -0,0 +1,61 @@
+import java.util.Arrays;
+
+// a binary min-heap of int values ordered by int keys, kept in two
+// primitive arrays that double in size when full, so pushing and popping
+// never allocates a box per entry
+class IntHeap {
+  int[] keys;
+  int[] values;
+  int size;
+
+  // constructor, for about the given number of entries
+  IntHeap(int capacity) {
+    this.keys = new int[Math.max(capacity, 1)];
+    this.values = new int[this.keys.length];
+  }
+
+  // adds the given value with the given key
+  void push(int key, int value) {
+    if (this.size == this.keys.length) {
+      this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+      this.values = Arrays.copyOf(this.values, 2 * this.size);
+    }
+    int slot = this.size;
+    this.size += 1;
+    while (slot > 0 && this.keys[(slot - 1) / 2] > key) {
+      int parent = (slot - 1) / 2;
+      this.keys[slot] = this.keys[parent];
+      this.values[slot] = this.values[parent];
+      slot = parent;
+    }
+    this.keys[slot] = key;
+    this.values[slot] = value;
+  }
+
+  // removes the value with the smallest key and returns it
+  int pop() {
+    if (this.size == 0) {
+      throw new IllegalStateException("The heap is empty");
+    }
+    int top = this.values[0];
+    this.size -= 1;
+    int key = this.keys[this.size];
+    int value = this.values[this.size];
+    int slot = 0;
+    while (2 * slot + 1 < this.size) {
+      int child = 2 * slot + 1;
+      if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+        child += 1;
+      }
+      if (this.keys[child] >= key) {
+        break;
+      }
+      this.keys[slot] = this.keys[child];
+      this.values[slot] = this.values[child];
+      slot = child;
+    }
+    this.keys[slot] = key;
+    this.values[slot] = value;
+    return top;
+  }
+}
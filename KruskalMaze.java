@@ -0,0 +1,30 @@
+import java.util.PrimitiveIterator;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+// kruskal's algorithm over randomly weighted grid edges, the generator
+// LightEmAll's kruskalAlgo runs on its GamePieces
+class KruskalMaze implements MazeGenerator {
+  // weights every edge of the board, then joins them from lightest to heaviest
+  public void generate(Board board, RandomGenerator rand) {
+    GridEdges edges = new GridEdges(board.width(), board.height(), rand);
+    KruskalMaze.connect(board, edges, IntStream.of(edges.byWeight()));
+  }
+
+  // joins the given edges of the board in the given order whenever they
+  // join two trees, taking the edges lazily and stopping as soon as the tree
+  // is complete, returns the number of edges in the tree
+  static int connect(Board board, GridEdges edges, IntStream order) {
+    UnionFind representatives = new UnionFind(board.size());
+    PrimitiveIterator.OfInt worklist = order.iterator();
+    int accepted = 0;
+    while (representatives.components > 1 && worklist.hasNext()) {
+      int edge = worklist.nextInt();
+      if (representatives.union(edges.from[edge], edges.to[edge])) {
+        board.join(edges.from[edge], edges.to[edge]);
+        accepted += 1;
+      }
+    }
+    return accepted;
+  }
+}
@@ -1,14 +1,22 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 import tester.*;
 import javalib.impworld.*;
 import java.awt.Color;
 import javalib.worldimages.*;
 
 class LightEmAll extends World {
+  // the largest window a game opens, in pixels
+  static final int WINDOW = 1000;
+
   // a list of columns of GamePieces,
   // i.e., represents the board in column-major order
   ArrayList<ArrayList<GamePiece>> board;
@@ -25,9 +33,20 @@ class LightEmAll extends World {
   int powerCol;
   int radius;
   int cellSize;
-  Random rand;
+  RandomGenerator rand;
   int numMoves;
   int timePassed;
+  // the rules of the game, played on this game's pieces
+  GameEngine engine;
+  // the tiles the board is drawn with, and the last scene drawn along with
+  // the engine version and move count it showed
+  TileCache tiles;
+  WorldScene scene;
+  int sceneVersion;
+  int sceneMoves;
+  int sceneView;
+  // the part of the board shown in the window
+  Viewport view;
 
   // constructor
   LightEmAll(ArrayList<ArrayList<GamePiece>> board, ArrayList<GamePiece> nodes, ArrayList<Edge> mst,
@@ -48,50 +67,119 @@ class LightEmAll extends World {
 
   // constructor for game
   LightEmAll() {
+    this(4, 4, new Random());
+  }
+
+  // constructor for testing
+  LightEmAll(Random rand) {
+    this(8, 8, rand);
+  }
+
+  // constructor for a game of the given size, generated from the given random
+  LightEmAll(int width, int height, Random rand) {
+    this(width, height, rand, null);
+  }
+
+  // constructor for the game generated from the given seed, which is the
+  // same board GameEngine.generate makes from it
+  LightEmAll(int width, int height, long seed) {
+    this(width, height, new SeedStreams(seed));
+  }
+
+  // constructor for a game whose maze and shuffle come from the given streams
+  LightEmAll(int width, int height, SeedStreams streams) {
+    this(width, height, streams.shuffle, new GridEdges(width, height, streams.maze));
+    this.engine.seed = streams.seed;
+  }
+
+  // constructor for the game generated from the given seed with its maze
+  // wired by the given generator, the same board GameEngine.generate makes
+  LightEmAll(int width, int height, long seed, MazeGenerator generator) {
+    SeedStreams streams = new SeedStreams(seed);
+    this.init(width, height, streams.shuffle, (pieces, maze) -> {
+      generator.generate(pieces, maze);
+      this.initTree();
+    }, streams.maze);
+    this.engine.seed = seed;
+  }
+
+  // constructor for a game of the given size, shuffled by the given random.
+  // its edges take the given weights, or draw them from the random if null
+  LightEmAll(int width, int height, RandomGenerator rand, GridEdges weights) {
+    this.init(width, height, rand, (pieces, maze) -> {
+      if (weights == null) {
+        this.initEdges();
+      }
+      else {
+        this.initEdges(weights);
+      }
+      this.kruskalAlgo();
+      this.initWires();
+    }, rand);
+  }
+
+  // builds the pieces of a width x height game, wires them with the given
+  // generator drawing from the maze random, shuffles them with the other
+  // random and starts the engine, timing each phase while Metrics are on
+  private void init(int width, int height, RandomGenerator rand, MazeGenerator generator,
+      RandomGenerator maze) {
+    this.rand = rand;
     this.nodes = new ArrayList<GamePiece>();
     this.mst = new ArrayList<Edge>();
-    this.width = 4;
-    this.height = 4;
+    this.width = width;
+    this.height = height;
     this.powerRow = 0;
     this.powerCol = 0;
     this.cellSize = 200;
     this.board = new ArrayList<ArrayList<GamePiece>>();
+    Metrics metrics = Metrics.active;
+    long start = metrics == null ? 0 : System.nanoTime();
     this.boardStartValues();
     this.initNodes();
     this.initNeighbors();
-    this.initEdges();
-    this.kruskalAlgo();
-    this.initWires();
-    this.radius = 0;
-    this.rand = new Random();
-    this.shuffleBoard();
+    if (metrics != null) {
+      start = metrics.lap(Metrics.PIECES, start);
+    }
+    generator.generate(new PieceBoard(this), maze);
+    if (metrics != null) {
+      start = metrics.lap(Metrics.MAZE, start);
+    }
     this.numMoves = 0;
     this.timePassed = 0;
+    // the engine measures the tree while the pieces are still solved
+    this.initEngine();
+    if (metrics != null) {
+      start = metrics.lap(Metrics.MEASURE, start);
+    }
+    this.shuffleBoard();
+    if (metrics != null) {
+      metrics.lap(Metrics.SHUFFLE, start);
+    }
   }
 
-  // constructor for testing
-  LightEmAll(Random rand) {
+  // constructor for playing the given engine's board directly, without a
+  // GamePiece per cell, so boards too big for pieces can still be played
+  LightEmAll(GameEngine engine, int cellSize) {
+    this.engine = engine;
+    this.board = new ArrayList<ArrayList<GamePiece>>();
     this.nodes = new ArrayList<GamePiece>();
     this.mst = new ArrayList<Edge>();
-    this.width = 8;
-    this.height = 8;
-    this.powerRow = 0;
-    this.powerCol = 0;
-    this.cellSize = 200;
-    this.board = new ArrayList<ArrayList<GamePiece>>();
-    this.boardStartValues();
-    this.initNodes();
-    this.initNeighbors();
-    this.initEdges();
-    this.kruskalAlgo();
-    this.initWires();
-    this.radius = 0;
-    this.rand = rand;
-    this.shuffleBoard();
-    this.numMoves = 0;
+    this.width = engine.board.width();
+    this.height = engine.board.height();
+    this.powerRow = engine.stationCol();
+    this.powerCol = engine.stationRow();
+    this.radius = engine.radius();
+    this.cellSize = cellSize;
+    this.rand = new Random();
+    this.numMoves = engine.numMoves;
     this.timePassed = 0;
   }
 
+  // constructor for a game taken from the given pool of ready puzzles
+  LightEmAll(PuzzlePool pool, PuzzleKey key, int cellSize) {
+    this(pool.take(key), cellSize);
+  }
+
   // initializes a board with basic cells, and initializes the powerStation
   void boardStartValues() {
     for (int x = 0; x < this.height; x++) {
@@ -118,33 +206,48 @@ class LightEmAll extends World {
 
   // initializes the edges using kruskal's algorithm
   void kruskalAlgo() {
-    HashMap<GamePiece, GamePiece> representatives = new HashMap<GamePiece, GamePiece>();
+    // every node's representative starts out as itself
+    UnionFind representatives = new UnionFind(this.width * this.height);
     ArrayList<Edge> edgesInTree = new ArrayList<Edge>();
-    this.mst.sort(new HighestDepth());
-    ArrayList<Edge> worklist = this.mst;
-    // initialize every node's representative to itself
-    for (int x = 0; x < this.height; x++) {
-      for (int y = 0; y < this.width; y++) {
-        GamePiece currentGamePiece = this.board.get(x).get(y);
-        representatives.put(currentGamePiece, currentGamePiece);
-      }
-    }
-    while (!worklist.isEmpty()) {
-      Edge currentEdge = worklist.remove(0);
-      if (this.find(representatives, 
-          currentEdge.fromNode).equals(this.find(representatives, 
-              currentEdge.toNode))) {
-        // do nothing as the worklist has already had it removed
-      }
-      else {
+    ArrayList<Edge> worklist = this.sortByWeight(this.mst);
+    // a spanning tree is complete once it has one edge less than there are nodes
+    int treeSize = this.width * this.height - 1;
+    for (int next = 0; next < worklist.size() && edgesInTree.size() < treeSize; next++) {
+      Edge currentEdge = worklist.get(next);
+      if (representatives.union(this.indexOf(currentEdge.fromNode),
+          this.indexOf(currentEdge.toNode))) {
         edgesInTree.add(currentEdge);
-        representatives.put(this.find(representatives, currentEdge.toNode),
-            this.find(representatives, currentEdge.fromNode));
       }
     }
     this.mst = edgesInTree;
   }
 
+  // orders the edges from lightest to heaviest, using a counting sort
+  // when the weights fall in a small range like the generated ones do
+  ArrayList<Edge> sortByWeight(ArrayList<Edge> edges) {
+    int[] keys = new int[edges.size()];
+    int max = 0;
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = edges.get(i).weight;
+      if (keys[i] < 0 || keys[i] >= 1 << 16) {
+        ArrayList<Edge> sorted = new ArrayList<Edge>(edges);
+        sorted.sort(new HighestDepth());
+        return sorted;
+      }
+      max = Math.max(max, keys[i]);
+    }
+    ArrayList<Edge> sorted = new ArrayList<Edge>(keys.length);
+    for (int i : CountingSort.order(keys, keys.length, max + 1)) {
+      sorted.add(edges.get(i));
+    }
+    return sorted;
+  }
+
+  // the index of a piece in row-major order
+  int indexOf(GamePiece p) {
+    return p.row * this.width + p.col;
+  }
+
   // finds a piece using the hashmap
   GamePiece find(HashMap<GamePiece, GamePiece> representatives, GamePiece p) {
     if (p.equals(representatives.get(p))) {
@@ -195,25 +298,43 @@ class LightEmAll extends World {
     }
   }
 
-  // initializes the edges of the board
+  // initializes the edges of the board, every pair of neighbors
+  // gets a single edge from the earlier node to the later one,
+  // weighted by this game's random generator
   void initEdges() {
     for (GamePiece currentNode : this.nodes) {
       for (GamePiece currentNeighbor : currentNode.neighbors) {
-        Edge currentEdge = new Edge(currentNode, currentNeighbor);
-        this.mst.add(currentEdge);
-        for (Edge currentEdgeInList : this.mst) {
-          if ((currentEdgeInList.fromNode == currentNode
-              && currentEdgeInList.toNode == currentNeighbor)
-              && (currentEdgeInList.fromNode == currentNeighbor
-              && currentEdgeInList.toNode == currentNode)) {
-            this.mst.remove(currentEdge);
-          }
+        if (this.indexOf(currentNode) < this.indexOf(currentNeighbor)) {
+          this.mst.add(new Edge(currentNode, currentNeighbor, this.rand));
         }
       }
     }
   }
+
+  // initializes the edges of the tree from the wires of the pieces,
+  // for boards wired by a MazeGenerator
+  void initTree() {
+    for (GamePiece current : this.nodes) {
+      if (current.right) {
+        this.mst.add(new Edge(current, this.board.get(current.row).get(current.col + 1), 0));
+      }
+      if (current.bottom) {
+        this.mst.add(new Edge(current, this.board.get(current.row + 1).get(current.col), 0));
+      }
+    }
+  }
+
+  // initializes the edges of the board from the given grid edges, keeping
+  // their order and weights so kruskal picks the tree a PackedBoard would
+  void initEdges(GridEdges weights) {
+    for (int i = 0; i < weights.count; i++) {
+      this.mst.add(new Edge(this.nodes.get(weights.from[i]), this.nodes.get(weights.to[i]),
+          weights.weight[i]));
+    }
+  }
   
   public void onTick() {
+    this.engine().tick();
     int timeSoFar = 0;
     if (timeSoFar % 28 == 0) {
     this.timePassed += 1;
@@ -223,44 +344,113 @@ class LightEmAll extends World {
 
   // draws scene
   public WorldScene makeScene() {
-    this.updatePowered();
+    Metrics metrics = Metrics.active;
+    if (metrics == null) {
+      return this.buildScene();
+    }
+    long start = System.nanoTime();
+    GameEngine game = this.engine();
+    long visited = game.visited;
+    WorldScene last = this.scene;
+    if (this.tiles == null) {
+      this.tiles = new TileCache();
+    }
+    int drawn = this.tiles.drawn;
+    WorldScene image = this.buildScene();
+    // a new board scene is the scene, its status bar and text plus any new
+    // tiles, and it looks up every visible cell. the won scene is two images
+    int images = 0;
+    int cells = 0;
+    if (image != last && image == this.scene) {
+      Viewport view = this.view();
+      images = 3 + this.tiles.drawn - drawn;
+      cells = (view.bottom() - view.top) * (view.right() - view.left);
+    }
+    else if (image != last) {
+      images = 2;
+    }
+    metrics.lap(Metrics.SCENE, start);
+    metrics.count(Metrics.FRAME_CELLS, game.visited - visited + cells);
+    metrics.count(Metrics.FRAME_IMAGES, images);
+    metrics.cellsVisited.add(cells);
+    metrics.imagesAllocated.add(images);
+    return image;
+  }
+
+  // draws the board and the status bar, or the last scene once the game is won
+  WorldScene buildScene() {
+    GameEngine game = this.engine();
+    game.refresh();
     if (this.didWin()) {
       return this.lastScene("You win!");
     }
-    
+    // nothing changed since the last frame, so it can be shown again
+    else if (this.scene != null && this.sceneVersion == game.version
+        && this.sceneMoves == this.numMoves && this.sceneView == this.view().version) {
+      return this.scene;
+    }
     else {
-      WorldScene image = new WorldScene(this.cellSize * this.width, this.cellSize * this.height);
-      WorldImage cell;
-      WorldImage movesAndTime = new TextImage(Integer.toString(this.numMoves) + Integer.toString(this.timePassed), 10, Color.BLUE);
-
-      for (int x = 0; x < this.height; x++) {
-        for (int y = 0; y < this.width; y++) {
-          GamePiece currentCell = this.board.get(x).get(y);
-          cell = currentCell.drawPiece(this.cellSize);
-          image.placeImageXY(cell, y * this.cellSize + this.cellSize / 2,
-              x * this.cellSize + this.cellSize / 2);
-        }
-        image.placeImageXY(
-            new RectangleImage(this.height * this.width, 10, OutlineMode.SOLID, Color.LIGHT_GRAY),
-            this.width * this.height / 2, this.height * this.height);
-            image.placeImageXY(new TextImage("Steps: " + Integer.toString(this.numMoves), 10, Color.BLACK), 50,
-            this.height * this.height);
+      Viewport view = this.view();
+      WorldScene image = new WorldScene(view.windowWidth, view.windowHeight);
+      if (this.tiles == null) {
+        this.tiles = new TileCache();
       }
+      if (view.block == 1) {
+        this.placeCells(image, game.board, view);
+      }
+      else {
+        this.placeBlocks(image, game, view);
+      }
+      image.placeImageXY(
+          new RectangleImage(view.windowWidth, 10, OutlineMode.SOLID, Color.LIGHT_GRAY),
+          view.windowWidth / 2, 5);
+      image.placeImageXY(new TextImage("Steps: " + Integer.toString(this.numMoves) + "  "
+          + Integer.toString(game.percentLit()) + "% lit", 10, Color.BLACK), 50, 5);
+      this.scene = image;
+      this.sceneVersion = game.version;
+      this.sceneMoves = this.numMoves;
+      this.sceneView = view.version;
       return image;
     }
   }
 
-  // checks if the game has been won
-  boolean didWin() {
-    for (int x = 0; x < this.height; x++) {
-      for (int y = 0; y < this.width; y++) {
-        GamePiece currentCell = this.board.get(x).get(y);
-        if (!currentCell.powered) {
-          return false;
-        }
+  // places a tile for every visible cell
+  void placeCells(WorldScene image, Board cells, Viewport view) {
+    int size = view.cellSize;
+    for (int x = view.top; x < view.bottom(); x++) {
+      for (int y = view.left; y < view.right(); y++) {
+        int cell = cells.index(x, y);
+        WorldImage tile = this.tiles.tile(cells.wires(cell), cells.powered(cell),
+            cells.station(cell), size);
+        image.placeImageXY(tile, (y - view.left) * size + size / 2,
+            (x - view.top) * size + size / 2);
       }
     }
-    return true;
+  }
+
+  // places a tile for every visible block of cells, shaded by how much of
+  // the block is powered
+  void placeBlocks(WorldScene image, GameEngine game, Viewport view) {
+    int size = view.cellSize;
+    int stationRow = game.stationRow();
+    int stationCol = game.stationCol();
+    for (int x = view.top; x < view.bottom(); x += view.block) {
+      int lastRow = Math.min(x + view.block, view.bottom());
+      for (int y = view.left; y < view.right(); y += view.block) {
+        int lastCol = Math.min(y + view.block, view.right());
+        boolean station = stationRow >= x && stationRow < lastRow
+            && stationCol >= y && stationCol < lastCol;
+        WorldImage tile = this.tiles.block(game.board.poweredIn(x, y, lastRow, lastCol),
+            (lastRow - x) * (lastCol - y), station, size);
+        image.placeImageXY(tile, (y - view.left) / view.block * size + size / 2,
+            (x - view.top) / view.block * size + size / 2);
+      }
+    }
+  }
+
+  // checks if the game has been won
+  boolean didWin() {
+    return this.engine().isSolved();
   }
 
   // draws the game in the won state
@@ -276,36 +466,77 @@ class LightEmAll extends World {
 
   // updates if cells are powered or not
   void updatePowered() {
-    GamePiece powerCell = this.board.get(powerCol).get(powerRow);
-    for (int x = 0; x < this.height; x++) {
-      for (int y = 0; y < this.width; y++) {
-        GamePiece currentCell = this.board.get(x).get(y);
+    for (ArrayList<GamePiece> row : this.board) {
+      for (GamePiece currentCell : row) {
         currentCell.powered = false;
       }
     }
-    powerCell.powered = true;
-    this.radius = this.initRadius();
-    powerCell.lightUp(this.radius);
+    this.engine().invalidate();
+    this.engine().refresh();
+  }
+
+  // sets up the rules on this game's pieces, which measures the tree their
+  // wires form now once
+  void initEngine() {
+    GamePiece powerCell = this.board.get(powerCol).get(powerRow);
+    this.engine = new GameEngine(new PieceBoard(this), this.indexOf(powerCell));
+    this.engine.numMoves = this.numMoves;
+    this.radius = this.engine.radius();
+  }
+
+  // the rules of this game, set up on first use for boards given whole
+  GameEngine engine() {
+    if (this.engine == null) {
+      this.initEngine();
+    }
+    return this.engine;
+  }
+
+  // the wires of the solved board packed by Wires.pack, which for a game
+  // with pieces are the wires of its spanning tree
+  byte[] solution() {
+    if (this.engine().solution != null) {
+      return this.engine().solution;
+    }
+    PackedBoard solved = new PackedBoard(this.width, this.height);
+    for (Edge edge : this.mst) {
+      solved.join(this.indexOf(edge.fromNode), this.indexOf(edge.toNode));
+    }
+    return Wires.pack(solved);
+  }
+
+  // saves this game to the given file, see BoardFile
+  void save(Path path) throws IOException {
+    GameEngine game = this.engine();
+    game.numMoves = this.numMoves;
+    new BoardFile(game, this.solution(), this.timePassed).write(path);
+  }
+
+  // loads the game saved in the given file onto a packed board
+  static LightEmAll load(Path path, int cellSize) throws IOException {
+    BoardFile saved = BoardFile.read(path);
+    LightEmAll game = new LightEmAll(saved.game, cellSize);
+    game.timePassed = saved.time;
+    return game;
+  }
+
+  // the part of the board shown in the window, set up on first use to show
+  // as much of the board as fits in the largest window
+  Viewport view() {
+    if (this.view == null) {
+      this.view = new Viewport(this.width, this.height,
+          Math.min(WINDOW, this.cellSize * this.width),
+          Math.min(WINDOW, this.cellSize * this.height), this.cellSize);
+    }
+    return this.view;
   }
 
   // finds radius using breath-first-search, using the farthest piece from the
   // powerStation
   int initRadius() {
-    ArrayList<GamePiece> que = new ArrayList<GamePiece>();
-    que.add(this.getFurthest());
-    ArrayList<GamePiece> visited = new ArrayList<GamePiece>();
-    while (!que.isEmpty()) {
-      GamePiece p = que.get(0);
-      visited.add(p);
-      que.remove(p);
-      for (GamePiece n : p.neighbors) {
-        if (!visited.contains(n)) {
-          n.depth = p.depth + 1;
-          que.add(n);
-        }
-      }
-    }
-    return (this.findMaxDepth(visited).depth + 1) / 2;
+    GridBfs search = this.engine().bfs();
+    search.run(this.engine().board, this.indexOf(this.getFurthest()));
+    return (search.eccentricity + 2) / 2;
   }
 
   // finds the GamePiece with the largest depth in a list
@@ -325,252 +556,65 @@ class LightEmAll extends World {
   // returns the farthest GamePiece from powerStation in this game, using
   // breath-first search
   GamePiece getFurthest() {
-    GamePiece furthest = null;
-    ArrayList<GamePiece> que = new ArrayList<GamePiece>(
-        Arrays.asList(this.board.get(powerCol).get(powerRow)));
-    ArrayList<GamePiece> visited = new ArrayList<GamePiece>();
-    while (!que.isEmpty()) {
-      GamePiece p = que.get(0);
-      visited.add(p);
-      furthest = p;
-      que.remove(p);
-      for (GamePiece n : p.neighbors) {
-        if (!visited.contains(n)) {
-          que.add(n);
-        }
-      }
-    }
-    return furthest;
+    GameEngine game = this.engine();
+    return this.pieceAt(game.bfs().run(game.board, game.station));
   }
 
-  // handles the arrow key presses
-  public void onKeyEvent(String key) {
-    GamePiece makePower;
-    GamePiece changePower = this.board.get(powerCol).get(powerRow);
-    if (key.equals("right") && this.powerRow < this.width - 1) {
-      makePower = this.board.get(powerCol).get(powerRow + 1);
-      
-      if (makePower.isConnected(changePower)) {
-        makePower.powerStation = true;
-        changePower.powerStation = false;
-        powerRow += 1;
-        this.numMoves += 1;
-      }
-    }
-
-    if (key.equals("left") && this.powerRow > 0) {
-      makePower = this.board.get(powerCol).get(powerRow - 1);
-      
-
-      if (makePower.isConnected(changePower)) {
-        makePower.powerStation = true;
-        changePower.powerStation = false;
-        powerRow -= 1;
-        this.numMoves += 1;
-      }
+  // the piece at the given row-major index. a game played on its engine's
+  // board has no pieces, so it gets a copy of the engine's cell instead
+  GamePiece pieceAt(int cell) {
+    if (this.board.isEmpty()) {
+      Board cells = this.engine().board;
+      GamePiece piece = new GamePiece(cells.row(cell), cells.col(cell));
+      piece.setWires(cells.wires(cell));
+      piece.powered = cells.powered(cell);
+      piece.powerStation = cells.station(cell);
+      return piece;
     }
+    return this.board.get(cell / this.width).get(cell % this.width);
+  }
 
-    if (key.equals("down") && powerCol < this.height - 1) {
-      makePower = this.board.get(powerCol + 1).get(powerRow);
-     
-      if (makePower.isConnected(changePower)) {
-        makePower.powerStation = true;
-        changePower.powerStation = false;
-        powerCol += 1;
-        this.numMoves += 1;
-      }
+  // handles the key presses, the arrow keys move the power station
+  // and the view keys pan and zoom
+  public void onKeyEvent(String key) {
+    GameEngine game = this.engine();
+    if (this.view().onKey(key)) {
+      return;
     }
-
-    if (key.equals("up") && powerCol > 0) {
-      makePower = this.board.get(powerCol - 1).get(powerRow);
-
-      if (makePower.isConnected(changePower)) {
-        makePower.powerStation = true;
-        changePower.powerStation = false;
-        powerCol -= 1;
-        this.numMoves += 1;
-      }
+    else if (game.moveStation(Wires.fromKey(key))
+        || (key.equals("z") && game.undo()) || (key.equals("y") && game.redo())) {
+      this.powerRow = game.stationCol();
+      this.powerCol = game.stationRow();
+      this.numMoves = game.numMoves;
     }
-
   }
 
   // handles mouse clicks on the game
   public void onMouseClicked(Posn p, String buttonName) {
     if (buttonName.equals("LeftButton")) {
-      GamePiece clicked = this.board.get(p.y / this.cellSize).get(p.x / this.cellSize);
-      clicked.rotateHelp();
-      this.numMoves += 1;
-    }
-  }
-}
-
-class GamePiece {
-  // in logical coordinates, with the origin
-  // at the top-left corner of the screen
-  int row;
-  int col;
-  // whether this GamePiece is isConnected to the
-  // adjacent left, right, top, or bottom pieces
-  boolean left;
-  boolean right;
-  boolean top;
-  boolean bottom;
-  // whether the power station is on this piece
-  boolean powerStation;
-
-  boolean powered;
-  int depth;
-  ArrayList<GamePiece> neighbors;
-
-  // constructor
-  GamePiece(int row, int col, boolean left, boolean right, boolean top, boolean bottom,
-      boolean powerStation, boolean powered, int depth) {
-    this.row = row;
-    this.col = col;
-    this.left = left;
-    this.right = right;
-    this.top = top;
-    this.bottom = bottom;
-    this.powerStation = powerStation;
-    this.powered = powered;
-    this.depth = depth;
-    this.neighbors = new ArrayList<GamePiece>();
-  }
-
-  public void rotateRandomly(int nextInt) {
-    for (int i = 0; i < nextInt; i++) {
-      this.rotateHelp();
-    }
-  }
-
-  // Convince constructor
-  GamePiece(int row, int col) {
-    this.row = row;
-    this.col = col;
-    this.left = false;
-    this.right = false;
-    this.top = false;
-    this.bottom = false;
-    this.powerStation = false;
-    this.powered = false;
-    this.depth = 1;
-    this.neighbors = new ArrayList<GamePiece>();
-  }
-
-  // draws a piece based on a pieces attributes
-  WorldImage drawPiece(int sizeOfCell) {
-    WorldImage answer = new RectangleImage(sizeOfCell - 1, sizeOfCell - 1, OutlineMode.SOLID,
-        Color.DARK_GRAY);
-    Color colorForPiece = Color.LIGHT_GRAY;
-    if (this.powered) {
-      colorForPiece = Color.ORANGE;
-    }
-    if (this.left) {
-      answer = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE,
-          new RectangleImage(sizeOfCell / 2, 5, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
-    }
-    if (this.right) {
-      answer = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE,
-          new RectangleImage(sizeOfCell / 2, 5, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
-    }
-    if (this.top) {
-      answer = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP,
-          new RectangleImage(5, sizeOfCell / 2, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
-    }
-    if (this.bottom) {
-      answer = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM,
-          new RectangleImage(5, sizeOfCell / 2, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
-    }
-    if (this.powerStation) {
-      answer = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.MIDDLE,
-          new StarImage(sizeOfCell / 2, 7, OutlineMode.SOLID, Color.BLUE), 0, 0, answer);
-    }
-    return answer;
-  }
-
-  // rotates the given game piece by 90 degrees
-  void rotateHelp() {
-    boolean left = this.left;
-    boolean right = this.right;
-    boolean top = this.top;
-    boolean bottom = this.bottom;
-
-    this.bottom = right;
-    this.left = bottom;
-    this.top = left;
-    this.right = top;
-  }
-
-  // finds the neighbors for a piece
-  void findNeighbors(ArrayList<ArrayList<GamePiece>> board) {
-    int width = board.size();
-
-    int height = board.get(0).size();
-
-    if (this.row < width - 1) {
-      GamePiece toAdd = board.get(this.row + 1).get(this.col);
-      this.neighbors.add(toAdd);
-    }
-    if (this.col < height - 1) {
-      GamePiece toAdd = board.get(this.row).get(this.col + 1);
-      this.neighbors.add(toAdd);
-    }
-    if (this.row > 0) {
-      GamePiece toAdd = board.get(this.row - 1).get(this.col);
-      this.neighbors.add(toAdd);
-    }
-    if (this.col > 0) {
-      GamePiece toAdd = board.get(this.row).get(this.col - 1);
-      this.neighbors.add(toAdd);
-    }
-  }
-
-  // lights up a cell if it is on
-  void lightUp(int radius) {
-    if (radius > 0) {
-      if (this.powered) {
-        for (GamePiece currentNeighbor : this.neighbors) {
-          if (currentNeighbor.isConnected(this) && !currentNeighbor.powered) {
-            currentNeighbor.powered = true;
-            currentNeighbor.lightUp(radius - 1);
-          }
-        }
+      GameEngine game = this.engine();
+      int cell = this.view().cellAt(p.x, p.y);
+      if (cell >= 0) {
+        game.rotate(cell / this.width, cell % this.width);
+        this.numMoves = game.numMoves;
       }
     }
   }
-
-  // checks if a game piece is connected to another game piece
-  boolean isConnected(GamePiece other) {
-    if (this.row == other.row + 1 && this.col == other.col) {
-      return this.top && other.bottom;
-    }
-
-    if (this.row == other.row - 1 && this.col == other.col) {
-      return this.bottom && other.top;
-    }
-
-    if (this.col == other.col + 1 && this.row == other.row) {
-      return this.left && other.right;
-    }
-
-    if (this.col == other.col - 1 && this.row == other.row) {
-      return this.right && other.left;
-    }
-    return false;
-  }
 }
 
 class Edge {
   GamePiece fromNode;
   GamePiece toNode;
   int weight;
-  Random rand = new Random();
 
   // constructor
   Edge(GamePiece f, GamePiece t) {
-    this.fromNode = f;
-    this.toNode = t;
-    this.weight = this.rand.nextInt(100);
+    this(f, t, new Random());
+  }
+
+  // constructor, draws the weight from the given generator
+  Edge(GamePiece f, GamePiece t, RandomGenerator rand) {
+    this(f, t, rand.nextInt(GridEdges.MAX_WEIGHT));
   }
 
   //convenience constructor for testing
@@ -741,10 +785,10 @@ class ExamplesLightEmAll {
     t.checkExpect(this.test.board.get(0).get(1).isConnected(this.test.board.get(0).get(2)), false);
     t.checkExpect(this.test.board.get(1).get(1).isConnected(this.test.board.get(2).get(2)), false);
     t.checkExpect(this.test.board.get(2).get(3).isConnected(this.test.board.get(0).get(2)), false);
-    t.checkExpect(this.test.board.get(3).get(3).isConnected(this.test.board.get(3).get(2)), true);
+    t.checkExpect(this.test.board.get(3).get(3).isConnected(this.test.board.get(3).get(2)), false);
+    t.checkExpect(this.test.board.get(3).get(2).isConnected(this.test.board.get(3).get(1)), true);
     t.checkExpect(this.test.board.get(1).get(1).isConnected(this.test.board.get(0).get(2)), false);
     t.checkExpect(this.test.board.get(0).get(1).isConnected(this.test.board.get(3).get(2)), false);
-    //Tests don't always pass because of random seed
   }
 
   void testLightUp(Tester t) {
@@ -958,4 +1002,1623 @@ class ExamplesLightEmAll {
   void testTime(Tester t) {
     initData();
   }
+
+  void testWires(Tester t) {
+    initData();
+    t.checkExpect(this.gp1.wires(), Wires.LEFT);
+    t.checkExpect(this.gp3.wires(), Wires.LEFT | Wires.TOP);
+    t.checkExpect(Wires.rotate(Wires.LEFT), Wires.TOP);
+    t.checkExpect(Wires.rotate(Wires.TOP | Wires.RIGHT), Wires.RIGHT | Wires.BOTTOM);
+    t.checkExpect(Wires.rotate(Wires.LEFT, 2), Wires.RIGHT);
+    t.checkExpect(Wires.opposite(Wires.BOTTOM), Wires.TOP);
+    this.gp3.rotateHelp();
+    t.checkExpect(this.gp3.wires(), Wires.rotate(Wires.LEFT | Wires.TOP));
+    this.gp1.setWires(Wires.BOTTOM);
+    t.checkExpect(this.gp1.bottom, true);
+    t.checkExpect(this.gp1.left, false);
+  }
+
+  void testPackedBoard(Tester t) {
+    initData2();
+    this.gp2.right = true;
+    this.gp3.left = true;
+    PackedBoard packed = PackedPiece.pack(this.boardExample);
+    t.checkExpect(packed.size(), 6);
+    t.checkExpect(packed.index(1, 2), 5);
+    t.checkExpect(packed.row(5), 1);
+    t.checkExpect(packed.col(5), 2);
+    t.checkExpect(packed.wires(2), Wires.LEFT | Wires.TOP);
+    t.checkExpect(packed.station(3), true);
+    t.checkExpect(packed.neighbor(0, Wires.TOP), -1);
+    t.checkExpect(packed.neighbor(0, Wires.BOTTOM), 3);
+    t.checkExpect(packed.neighbor(2, Wires.RIGHT), -1);
+    t.checkExpect(packed.connected(1, 2), true);
+    t.checkExpect(packed.connected(0, 1), false);
+    t.checkExpect(packed.connected(0, 4), false);
+    packed.rotate(2);
+    t.checkExpect(packed.wires(2), Wires.TOP | Wires.RIGHT);
+    t.checkExpect(packed.connected(1, 2), false);
+  }
+
+  void testPackedLightUp(Tester t) {
+    PackedBoard packed = new PackedBoard(3, 1);
+    packed.setWires(0, Wires.RIGHT);
+    packed.setWires(1, Wires.LEFT | Wires.RIGHT);
+    packed.setWires(2, Wires.LEFT);
+    t.checkExpect(packed.lightUp(0, 5), 0);
+    packed.setPowered(0, true);
+    t.checkExpect(packed.lightUp(0, 1), 1);
+    t.checkExpect(packed.didWin(), false);
+    packed.clearPowered();
+    packed.setPowered(0, true);
+    t.checkExpect(packed.lightUp(0, 2), 2);
+    t.checkExpect(packed.didWin(), true);
+  }
+
+  void testPackedPiece(Tester t) {
+    PackedBoard packed = new PackedBoard(2, 1);
+    packed.setWires(0, Wires.TOP);
+    packed.setWires(1, Wires.LEFT);
+    packed.setPowered(0, true);
+    GamePiece first = new PackedPiece(packed, 0, 0);
+    GamePiece second = new PackedPiece(packed, 0, 1);
+    t.checkExpect(first.top, true);
+    t.checkExpect(first.isConnected(second), false);
+    first.rotateHelp();
+    t.checkExpect(first.right, true);
+    t.checkExpect(packed.wires(0), Wires.RIGHT);
+    t.checkExpect(first.isConnected(second), true);
+    first.lightUp(1);
+    t.checkExpect(packed.powered(1), true);
+    t.checkExpect(new PackedPiece(packed, 0, 1).powered, true);
+  }
+
+  void testUnionFind(Tester t) {
+    UnionFind sets = new UnionFind(5);
+    t.checkExpect(sets.components, 5);
+    t.checkExpect(sets.find(3), 3);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.union(1, 0), false);
+    t.checkExpect(sets.union(2, 3), true);
+    t.checkExpect(sets.connected(0, 3), false);
+    t.checkExpect(sets.union(3, 1), true);
+    t.checkExpect(sets.connected(0, 2), true);
+    t.checkExpect(sets.find(0) == sets.find(2), true);
+    t.checkExpect(sets.components, 2);
+  }
+
+  void testIndexOf(Tester t) {
+    initData2();
+    t.checkExpect(this.test.indexOf(this.test.board.get(0).get(0)), 0);
+    t.checkExpect(this.test.indexOf(this.test.board.get(2).get(3)), 19);
+  }
+
+  void testInitEdgesOnce(Tester t) {
+    LightEmAll test = new LightEmAll(new Random(5));
+    test.board = new ArrayList<ArrayList<GamePiece>>();
+    test.nodes = new ArrayList<GamePiece>();
+    test.mst = new ArrayList<Edge>();
+    test.boardStartValues();
+    test.initNodes();
+    test.initNeighbors();
+    test.initEdges();
+    t.checkExpect(test.mst.size(), GridEdges.countFor(8, 8));
+    t.checkExpect(test.indexOf(test.mst.get(0).fromNode) < test.indexOf(test.mst.get(0).toNode),
+        true);
+  }
+
+  void testGridEdges(Tester t) {
+    GridEdges edges = new GridEdges(3, 2, new Random(1));
+    t.checkExpect(GridEdges.countFor(3, 2), 7);
+    t.checkExpect(edges.count, 7);
+    t.checkExpect(edges.from[0], 0);
+    t.checkExpect(edges.to[0], 1);
+    t.checkExpect(edges.from[1], 0);
+    t.checkExpect(edges.to[1], 3);
+    t.checkExpect(edges.to[6], 5);
+    t.checkExpect(edges.ids().count(), 7L);
+    t.checkExpect(edges.weight[3] >= 0 && edges.weight[3] < 100, true);
+  }
+
+  void testPackedKruskal(Tester t) {
+    PackedBoard packed = new PackedBoard(3, 2);
+    GridEdges edges = new GridEdges(3, 2, new Random(1));
+    t.checkExpect(packed.kruskal(edges, edges.ids()), 5);
+    packed.setPowered(0, true);
+    t.checkExpect(packed.lightUp(0, 6), 5);
+    t.checkExpect(packed.didWin(), true);
+    PackedBoard line = new PackedBoard(2, 1);
+    line.join(1, 0);
+    t.checkExpect(line.wires(0), Wires.RIGHT);
+    t.checkExpect(line.wires(1), Wires.LEFT);
+  }
+
+  void testCountingSort(Tester t) {
+    int[] keys = new int[] {3, 1, 3, 0, 1};
+    t.checkExpect(CountingSort.order(keys, 5, 4), new int[] {3, 1, 4, 0, 2});
+    t.checkExpect(CountingSort.order(keys, 2, 4), new int[] {1, 0});
+  }
+
+  void testSortByWeight(Tester t) {
+    initData();
+    ArrayList<Edge> edges = new ArrayList<Edge>(Arrays.asList(this.e2, this.e1, this.e3));
+    t.checkExpect(this.test.sortByWeight(edges),
+        new ArrayList<Edge>(Arrays.asList(this.e1, this.e2, this.e3)));
+    Edge heavy = new Edge(this.gp1, this.gp2, 1 << 20);
+    edges.add(0, heavy);
+    t.checkExpect(this.test.sortByWeight(edges),
+        new ArrayList<Edge>(Arrays.asList(this.e1, this.e2, this.e3, heavy)));
+  }
+
+  void testSeededGeneration(Tester t) {
+    LightEmAll first = new LightEmAll(new Random(7));
+    LightEmAll second = new LightEmAll(new Random(7));
+    t.checkExpect(first.board.get(3).get(4).wires(), second.board.get(3).get(4).wires());
+    t.checkExpect(first.mst.size(), 63);
+    PackedBoard packed = PackedBoard.generate(10, 10, new Random(7));
+    t.checkExpect(packed.cells, PackedBoard.generate(10, 10, new Random(7)).cells);
+    packed.setPowered(0, true);
+    t.checkExpect(packed.lightUp(0, 100), 99);
+    GridEdges edges = new GridEdges(4, 4, new Random(2));
+    int[] order = edges.byWeight();
+    t.checkExpect(edges.weight[order[0]] <= edges.weight[order[order.length - 1]], true);
+  }
+
+  void testEngineOnPieces(Tester t) {
+    LightEmAll game = new LightEmAll(new Random(4));
+    game.updatePowered();
+    t.checkExpect(game.engine.powerDirty, false);
+    t.checkExpect(game.engine.flood.cell(0), 0);
+    t.checkExpect(game.board.get(0).get(0).powered, true);
+    int litBefore = game.engine.poweredCount;
+    game.engine.refresh();
+    t.checkExpect(game.engine.poweredCount, litBefore);
+    GamePiece far = game.board.get(7).get(7);
+    if (!far.powered) {
+      game.onMouseClicked(new Posn(7 * 200 + 1, 7 * 200 + 1), "LeftButton");
+      boolean touchesPower = false;
+      for (GamePiece n : far.neighbors) {
+        touchesPower = touchesPower || (n.powered && n.isConnected(far));
+      }
+      t.checkExpect(game.engine.powerDirty, touchesPower);
+      t.checkExpect(game.numMoves, 1);
+    }
+    game.onMouseClicked(new Posn(1, 1), "LeftButton");
+    t.checkExpect(game.engine.powerDirty, true);
+    game.makeScene();
+    int count = 0;
+    for (ArrayList<GamePiece> row : game.board) {
+      for (GamePiece p : row) {
+        if (p.powered) {
+          count += 1;
+        }
+      }
+    }
+    t.checkExpect(count, game.engine.poweredCount);
+    t.checkExpect(game.didWin(), count == 64);
+  }
+
+  void testGridBfs(Tester t) {
+    PackedBoard packed = new PackedBoard(4, 3);
+    GridBfs search = new GridBfs(12);
+    t.checkExpect(search.run(packed, 0), 11);
+    t.checkExpect(search.eccentricity, 5);
+    t.checkExpect(search.reached, 12);
+    t.checkExpect(search.dist[6], 3);
+    t.checkExpect(search.visited(6), true);
+    t.checkExpect(search.run(packed, 5), 11);
+    t.checkExpect(search.eccentricity, 3);
+    t.checkExpect(search.dist[0], 2);
+    PackedBoard tooBig = new PackedBoard(5, 5);
+    t.checkException(new IllegalArgumentException(
+        "Graph of 25 cells does not fit a search over 12"), search, "run", tooBig, 0);
+  }
+
+  void testBoardNeighbors(Tester t) {
+    initData2();
+    PieceBoard pieces = new PieceBoard(this.test);
+    int[] out = new int[4];
+    t.checkExpect(pieces.size(), 64);
+    t.checkExpect(pieces.neighbors(9, out), 4);
+    t.checkExpect(this.test.pieceAt(9), this.test.board.get(1).get(1));
+    t.checkExpect(pieces.neighbors(0, out) >= 2, true);
+    t.checkExpect(pieces.wires(9), this.test.board.get(1).get(1).wires());
+    pieces.rotate(9);
+    t.checkExpect(pieces.wires(9), this.test.board.get(1).get(1).wires());
+    pieces.setStation(9, true);
+    t.checkExpect(this.test.board.get(1).get(1).powerStation, true);
+    PackedBoard packed = new PackedBoard(3, 3);
+    t.checkExpect(packed.neighbors(0, out), 2);
+    t.checkExpect(out[0], 1);
+    t.checkExpect(out[1], 3);
+    t.checkExpect(packed.neighbors(4, out), 4);
+  }
+
+  void testPowerFlood(Tester t) {
+    PackedBoard packed = new PackedBoard(4, 1);
+    packed.setWires(0, Wires.RIGHT);
+    packed.setWires(1, Wires.LEFT | Wires.RIGHT);
+    packed.setWires(2, Wires.LEFT | Wires.RIGHT);
+    packed.setWires(3, Wires.LEFT);
+    PowerFlood flood = new PowerFlood(4);
+    t.checkExpect(flood.run(packed, 0, 0), 1);
+    t.checkExpect(flood.run(packed, 0, 2), 3);
+    t.checkExpect(flood.lit(2), true);
+    t.checkExpect(flood.lit(3), false);
+    t.checkExpect(flood.depth[2], 2);
+    packed.rotate(2);
+    t.checkExpect(flood.run(packed, 3, 10), 1);
+    t.checkExpect(flood.lit(0), false);
+    t.checkExpect(flood.run(packed, 0, 10), 2);
+    PackedBoard corridor = new PackedBoard(100000, 1);
+    for (int cell = 0; cell < 99999; cell++) {
+      corridor.join(cell, cell + 1);
+    }
+    corridor.setPowered(0, true);
+    t.checkExpect(corridor.lightUp(0, 100000), 99999);
+    t.checkExpect(corridor.didWin(), true);
+  }
+
+  void testTreeMetrics(Tester t) {
+    PackedBoard packed = new PackedBoard(5, 1);
+    for (int cell = 0; cell < 4; cell++) {
+      packed.join(cell, cell + 1);
+    }
+    TreeMetrics line = new TreeMetrics(packed);
+    t.checkExpect(line.diameter, 4);
+    t.checkExpect(line.radius, 3);
+    t.checkExpect(line.center, 2);
+    t.checkExpect(line.centerDistance(0), 2);
+    t.checkExpect(line.centerDistance(3), 1);
+    // a comb whose longest path runs down the first column and along the
+    // bottom row, so the center is off the middle of the grid
+    PackedBoard comb = new PackedBoard(4, 3);
+    comb.join(0, 4);
+    comb.join(4, 8);
+    comb.join(8, 9);
+    comb.join(9, 10);
+    comb.join(10, 11);
+    comb.join(9, 5);
+    comb.join(5, 1);
+    comb.join(10, 6);
+    comb.join(6, 2);
+    comb.join(11, 7);
+    comb.join(7, 3);
+    TreeMetrics tree = new TreeMetrics(comb);
+    t.checkExpect(tree.diameter, 7);
+    t.checkExpect(tree.radius, 3);
+    t.checkExpect(tree.centerDistance(tree.center), 0);
+    t.checkExpect(tree.center == 9 || tree.center == 10, true);
+    t.checkExpect(tree.centerDistance(0) + tree.centerDistance(3), 7);
+    t.checkExpect(tree.centerDistance.isDirect(), false);
+    TreeMetrics moved = tree.offHeap();
+    t.checkExpect(moved.centerDistance.isDirect(), true);
+    t.checkExpect(moved.centerDistance(0), tree.centerDistance(0));
+    t.checkExpect(moved.offHeap(), moved);
+    PackedBoard apart = new PackedBoard(3, 1);
+    apart.join(1, 2);
+    TreeMetrics broken = new TreeMetrics(apart);
+    t.checkExpect(broken.diameter, 0);
+    t.checkExpect(broken.centerDistance(2), -1);
+    TreeMetrics grid = new TreeMetrics(37, 23);
+    t.checkExpect(grid.radius, 30);
+    t.checkExpect(grid.diameter, -1);
+    t.checkExpect(grid.centerDistance, null);
+    t.checkExpect(grid.offHeap(), grid);
+    t.checkExpect(new TreeMetrics(1, 1).radius, 1);
+    GameEngine generated = GameEngine.generate(20, 12, 5L);
+    t.checkExpect(generated.metrics.diameter >= 30, true);
+    int farthest = 0;
+    for (int cell = 0; cell < 240; cell++) {
+      farthest = Math.max(farthest, generated.metrics.centerDistance(cell));
+    }
+    t.checkExpect(farthest, (generated.metrics.diameter + 1) / 2);
+    initData2();
+    t.checkExpect(this.test.engine.metrics.diameter >= 14, true);
+    t.checkExpect(this.test.engine.metrics.centerDistance(this.test.engine.metrics.center), 0);
+    t.checkExpect(this.test.radius, this.test.initRadius());
+    this.test.onKeyEvent("down");
+    this.test.updatePowered();
+    t.checkExpect(this.test.radius, 8);
+  }
+  void testGameEngine(Tester t) {
+    GameEngine game = GameEngine.generate(6, 5, new Random(11));
+    t.checkExpect(game.board.size(), 30);
+    t.checkExpect(game.board.station(0), true);
+    t.checkExpect(game.stationRow(), 0);
+    t.checkExpect(game.radius(), game.metrics.radius);
+    int powered = game.poweredCount();
+    t.checkExpect(powered >= 1, true);
+    t.checkExpect(game.isSolved(), powered == 30);
+    t.checkExpect(game.moveStation(0), false);
+    t.checkExpect(game.moveStation(Wires.TOP), false);
+    int before = game.board.wires(7);
+    game.rotate(1, 1);
+    t.checkExpect(game.board.wires(7), Wires.rotate(before));
+    t.checkExpect(game.numMoves, 1);
+    PackedBoard line = new PackedBoard(3, 1);
+    line.join(0, 1);
+    GameEngine small = new GameEngine(line, 0);
+    t.checkExpect(small.poweredCount(), 2);
+    t.checkExpect(small.isSolved(), false);
+    t.checkExpect(small.moveStation(Wires.RIGHT), true);
+    t.checkExpect(small.stationCol(), 1);
+    t.checkExpect(line.station(0), false);
+    t.checkExpect(small.moveStation(Wires.RIGHT), false);
+    t.checkExpect(small.poweredCount(), 2);
+    small.rotate(0, 2);
+    t.checkExpect(small.powerDirty, false);
+    line.join(1, 2);
+    small.invalidate();
+    t.checkExpect(small.isSolved(), true);
+    t.checkExpect(Wires.fromKey("down"), Wires.BOTTOM);
+    t.checkExpect(Wires.fromKey("x"), 0);
+  }
+
+  void testSizedConstructor(Tester t) {
+    LightEmAll wide = new LightEmAll(5, 3, new Random(2));
+    t.checkExpect(wide.board.size(), 3);
+    t.checkExpect(wide.board.get(0).size(), 5);
+    t.checkExpect(wide.mst.size(), 14);
+    t.checkExpect(wide.engine.board.size(), 15);
+  }
+
+  void testBench(Tester t) {
+    LightEmAllBench bench = new LightEmAllBench(0, 1, 8, 42);
+    BenchResult result = bench.run("didWin", 8);
+    t.checkExpect(result.ops >= 1, true);
+    t.checkExpect(result.size, 8);
+    t.checkExpect(bench.run("construct", 16), null);
+    t.checkExpect(bench.run("engineClick", 16).name, "engineClick");
+    t.checkExpect(LightEmAllBench.parseSizes("8,64"), new int[] {8, 64});
+    t.checkException(new IllegalArgumentException("No benchmark named nothing, pick from "
+        + Arrays.toString(LightEmAllBench.BENCHMARKS)), bench, "run", "nothing", 8);
+  }
+
+  void testTileCache(Tester t) {
+    initData();
+    TileCache cache = new TileCache();
+    WorldImage tile = cache.tile(Wires.LEFT, true, false, 20);
+    t.checkExpect(tile, this.gp1.drawPiece(20));
+    t.checkExpect(cache.tile(Wires.LEFT, true, false, 20) == tile, true);
+    t.checkExpect(cache.tile(Wires.LEFT, false, false, 20) == tile, false);
+    t.checkExpect(cache.tile(Wires.LEFT, true, false, 40) == tile, false);
+    t.checkExpect(cache.drawn, 3);
+    t.checkExpect(cache.tile(Wires.BOTTOM, true, true, 20), this.gp4.drawPiece(20));
+  }
+
+  void testSceneReuse(Tester t) {
+    LightEmAll game = new LightEmAll(new Random(6));
+    WorldScene first = game.makeScene();
+    if (!game.didWin()) {
+      t.checkExpect(game.makeScene() == first, true);
+      int drawn = game.tiles.drawn;
+      game.onMouseClicked(new Posn(250, 250), "LeftButton");
+      t.checkExpect(game.makeScene() == first, false);
+      t.checkExpect(game.tiles.drawn <= 64, true);
+      t.checkExpect(game.tiles.drawn >= drawn, true);
+    }
+  }
+
+  void testViewport(Tester t) {
+    Viewport view = new Viewport(100, 50, 1000, 800, 200);
+    t.checkExpect(view.right(), 5);
+    t.checkExpect(view.bottom(), 4);
+    t.checkExpect(view.cellAt(450, 250), 102);
+    t.checkExpect(view.cellAt(-1, 0), -1);
+    t.checkExpect(view.onKey("a"), false);
+    t.checkExpect(view.onKey("d"), true);
+    t.checkExpect(view.left, 1);
+    t.checkExpect(view.cellAt(0, 0), 1);
+    t.checkExpect(view.onKey("x"), false);
+    t.checkExpect(view.zoomIn(), false);
+    t.checkExpect(view.zoomOut(), true);
+    t.checkExpect(view.cellSize, 100);
+    view.fit();
+    t.checkExpect(view.showsAll(), true);
+    t.checkExpect(view.cellSize, 12);
+    t.checkExpect(view.block, 2);
+    t.checkExpect(view.zoomOut(), false);
+    t.checkExpect(view.cellAt(0, 0), -1);
+    t.checkExpect(view.zoomIn(), true);
+    t.checkExpect(view.block, 1);
+    t.checkExpect(view.pan(Wires.BOTTOM), false);
+    t.checkExpect(view.pan(Wires.RIGHT), true);
+    t.checkExpect(view.left, 16);
+    t.checkExpect(view.pan(Wires.RIGHT), false);
+    t.checkExpect(view.zoomIn(), true);
+    t.checkExpect(view.cellSize, 25);
+    view.zoomIn();
+    view.zoomIn();
+    view.zoomIn();
+    t.checkExpect(view.cellSize, 200);
+    t.checkExpect(view.zoomIn(), false);
+    Viewport odd = new Viewport(1000, 1000, 500, 500, 75);
+    odd.zoomOut();
+    odd.zoomOut();
+    t.checkExpect(odd.cellSize, 18);
+    odd.zoomIn();
+    t.checkExpect(odd.cellSize, 37);
+    odd.zoomIn();
+    t.checkExpect(odd.cellSize, 75);
+    odd.zoomIn();
+    t.checkExpect(odd.cellSize, 150);
+    odd.zoomOut();
+    t.checkExpect(odd.cellSize, 75);
+  }
+
+  void testPoweredIn(Tester t) {
+    PackedBoard packed = new PackedBoard(4, 3);
+    packed.setPowered(5, true);
+    packed.setPowered(6, true);
+    packed.setPowered(11, true);
+    t.checkExpect(packed.poweredIn(0, 0, 3, 4), 3);
+    t.checkExpect(packed.poweredIn(1, 1, 2, 2), 1);
+    t.checkExpect(packed.poweredIn(0, 2, 3, 4), 2);
+    t.checkExpect(packed.poweredIn(0, 0, 1, 4), 0);
+  }
+
+  void testZoomedScene(Tester t) {
+    GameEngine engine = GameEngine.generate(300, 200, new Random(12));
+    LightEmAll game = new LightEmAll(engine, 200);
+    t.checkExpect(game.view().windowWidth, 1000);
+    t.checkExpect(game.view().windowHeight, 1000);
+    game.makeScene();
+    t.checkExpect(game.tiles.drawn <= 64, true);
+    game.onMouseClicked(new Posn(250, 450), "LeftButton");
+    t.checkExpect(game.numMoves, 1);
+    t.checkExpect(engine.board.wires(engine.board.index(2, 1)),
+        Wires.rotate(GameEngine.generate(300, 200, new Random(12)).board.wires(601), 1));
+    game.onKeyEvent("f");
+    WorldScene zoomed = game.makeScene();
+    t.checkExpect(game.view().block, 4);
+    t.checkExpect(game.view().showsAll(), true);
+    t.checkExpect(game.makeScene() == zoomed, true);
+    game.onMouseClicked(new Posn(250, 450), "LeftButton");
+    t.checkExpect(game.numMoves, 1);
+    game.onKeyEvent("+");
+    t.checkExpect(game.makeScene() == zoomed, false);
+    t.checkExpect(TileCache.shade(0), Color.LIGHT_GRAY);
+    t.checkExpect(TileCache.shade(TileCache.SHADES), Color.ORANGE);
+  }
+
+  void testPoweredCount(Tester t) {
+    PackedBoard packed = new PackedBoard(3, 1);
+    packed.setPowered(0, true);
+    packed.setPowered(0, true);
+    packed.setStation(0, true);
+    t.checkExpect(packed.poweredCount, 1);
+    packed.setWires(0, Wires.RIGHT);
+    packed.setWires(1, Wires.LEFT | Wires.RIGHT);
+    packed.setWires(2, Wires.LEFT);
+    t.checkExpect(packed.didWin(), false);
+    t.checkExpect(packed.lightUp(0, 2), 2);
+    t.checkExpect(packed.poweredCount, 3);
+    t.checkExpect(packed.didWin(), true);
+    packed.setPowered(1, false);
+    t.checkExpect(packed.didWin(), false);
+    packed.clearPowered();
+    t.checkExpect(packed.poweredCount, 0);
+  }
+
+  void testAllLit(Tester t) {
+    PowerFlood flood = new PowerFlood(130);
+    t.checkExpect(flood.allLit(0), true);
+    for (int cell = 0; cell < 129; cell++) {
+      flood.light(cell);
+    }
+    t.checkExpect(flood.allLit(64), true);
+    t.checkExpect(flood.allLit(129), true);
+    t.checkExpect(flood.allLit(130), false);
+    flood.light(129);
+    t.checkExpect(flood.allLit(130), true);
+  }
+
+  void testPercentLit(Tester t) {
+    GameEngine engine = GameEngine.generate(10, 10, new Random(3));
+    int lit = engine.poweredCount();
+    t.checkExpect(engine.percentLit(), lit);
+    t.checkExpect(engine.flood.allLit(100), engine.isSolved());
+    int cells = 0;
+    for (int cell = 0; cell < 100; cell++) {
+      if (engine.powered(cell)) {
+        t.checkExpect(engine.board.powered(cell), true);
+        cells += 1;
+      }
+    }
+    t.checkExpect(cells, lit);
+    GameEngine single = GameEngine.generate(1, 1, new Random(3));
+    t.checkExpect(single.percentLit(), 100);
+    t.checkExpect(single.isSolved(), true);
+    t.checkExpect(single.flood.allLit(1), true);
+  }
+
+  void testSolverRotations(Tester t) {
+    t.checkExpect(Solver.rotations(Wires.TOP, 0), 15);
+    t.checkExpect(Solver.rotations(Wires.TOP | Wires.BOTTOM, 0), 3);
+    t.checkExpect(Solver.rotations(Wires.ALL, 0), 1);
+    t.checkExpect(Solver.rotations(Wires.TOP | Wires.RIGHT, Wires.TOP | Wires.LEFT), 2);
+    t.checkExpect(Solver.withWire(Wires.TOP, Wires.RIGHT), 2);
+    t.checkExpect(Solver.withWire(Wires.TOP | Wires.BOTTOM, Wires.LEFT), 10);
+  }
+
+  void testSolver(Tester t) {
+    // a corridor has exactly one solution
+    PackedBoard corridor = new PackedBoard(4, 1);
+    corridor.setWires(0, Wires.TOP);
+    corridor.setWires(1, Wires.TOP | Wires.BOTTOM);
+    corridor.setWires(2, Wires.LEFT | Wires.RIGHT);
+    corridor.setWires(3, Wires.RIGHT);
+    Solver solver = new Solver(corridor);
+    t.checkExpect(solver.solve(2), 1);
+    t.checkExpect(solver.gaveUp, false);
+    t.checkExpect(solver.clicks, new int[] {1, 1, 0, 2});
+    t.checkExpect(solver.totalClicks, 4);
+    solver.apply(corridor);
+    t.checkExpect(corridor.wires(0), Wires.RIGHT);
+    t.checkExpect(corridor.wires(3), Wires.LEFT);
+    // two dead ends can't make a board of three cells
+    PackedBoard broken = new PackedBoard(3, 1);
+    broken.setWires(0, Wires.RIGHT);
+    broken.setWires(1, Wires.LEFT);
+    broken.setWires(2, Wires.LEFT);
+    t.checkExpect(new Solver(broken).solve(2), 0);
+    // four corners can only make a loop
+    PackedBoard loop = new PackedBoard(2, 2);
+    for (int cell = 0; cell < 4; cell++) {
+      loop.setWires(cell, Wires.TOP | Wires.RIGHT);
+    }
+    t.checkExpect(new Solver(loop).solve(2), 0);
+  }
+
+  void testSolveGenerated(Tester t) {
+    for (int seed = 0; seed < 5; seed++) {
+      GameEngine engine = GameEngine.generate(30, 20, new Random(seed));
+      Solver solver = engine.solve();
+      t.checkExpect(solver.solutions >= 1, true);
+      int total = 0;
+      int most = 0;
+      for (int cell = 0; cell < 600; cell++) {
+        total += solver.clicks[cell];
+        most = Math.max(most, solver.clicks[cell]);
+      }
+      t.checkExpect(solver.totalClicks, total);
+      t.checkExpect(most < 4, true);
+      solver.apply(engine.board);
+      t.checkExpect(new PowerFlood(600).run(engine.board, 0, 600), 600);
+      t.checkExpect(new Solver(engine.board).solve(1), 1);
+      Solver again = new Solver(engine.board);
+      again.solve(1);
+      t.checkExpect(again.totalClicks, 0);
+    }
+  }
+
+  void testSolveBudget(Tester t) {
+    Solver solver = new Solver(GameEngine.generate(40, 40, new Random(1)).board);
+    solver.budget = 0;
+    t.checkExpect(solver.solve(1), 0);
+    t.checkExpect(solver.gaveUp, true);
+    t.checkExpect(solver.steps, 1L);
+    solver.budget = 1000;
+    t.checkExpect(solver.solve(1), 0);
+    t.checkExpect(solver.gaveUp, true);
+    t.checkExpect(solver.steps <= 1000 + 1600, true);
+    solver.budget = Solver.BUDGET;
+    t.checkExpect(solver.solve(1), 1);
+    t.checkExpect(solver.gaveUp, false);
+    t.checkExpect(solver.steps < Solver.BUDGET, true);
+  }
+
+  void testTileSolver(Tester t) {
+    GameEngine engine = GameEngine.generate(6, 4, new Random(2));
+    Solver tile = new Solver(engine.board, 1, 2, 2, 3);
+    t.checkExpect(tile.size, 6);
+    t.checkExpect(tile.boardCell(0), 8);
+    t.checkExpect(tile.boardCell(5), 16);
+    t.checkExpect(tile.outside(0), Wires.TOP | Wires.LEFT);
+    t.checkExpect(tile.outside(5), Wires.RIGHT | Wires.BOTTOM);
+    t.checkExpect(new Solver(engine.board, 0, 0, 4, 6).outside(23), 0);
+    t.checkExpect(tile.narrow(), true);
+    Solver whole = new Solver(engine.board);
+    whole.solve(1);
+    for (int cell = 0; cell < 6; cell++) {
+      t.checkExpect((tile.domain[cell] & (1 << whole.clicks[tile.boardCell(cell)])) != 0, true);
+    }
+  }
+
+  void testParallelSolver(Tester t) {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    for (int seed = 0; seed < 3; seed++) {
+      GameEngine engine = GameEngine.generate(40, 30, new Random(seed));
+      ParallelSolver parallel = new ParallelSolver(engine.board, 16, pool);
+      t.checkExpect(parallel.tilesAcross(), 3);
+      t.checkExpect(parallel.tilesDown(), 2);
+      t.checkExpect(parallel.borderSize, 192);
+      Solver sequential = new Solver(engine.board);
+      t.checkExpect(parallel.solve(2), sequential.solve(2));
+      t.checkExpect(sequential.solutions > 1
+          || parallel.solver.totalClicks == sequential.totalClicks, true);
+      t.checkExpect(parallel.solve(1), 1);
+      parallel.solver.apply(engine.board);
+      t.checkExpect(new PowerFlood(1200).run(engine.board, 0, 1200), 1200);
+    }
+    PackedBoard loop = new PackedBoard(2, 2);
+    for (int cell = 0; cell < 4; cell++) {
+      loop.setWires(cell, Wires.TOP | Wires.RIGHT);
+    }
+    t.checkExpect(new ParallelSolver(loop, 1, pool).solve(1), 0);
+    int[] any = {15, 15, 15, 15};
+    int[] wired = {Solver.WIRE, Solver.WIRE, 0, Solver.WIRE, Solver.WIRE, 0, 0, 0};
+    Solver closed = new Solver(loop);
+    t.checkExpect(closed.narrowFrom(any, wired, new int[0], 0), false);
+    PackedBoard line = new PackedBoard(2, 2);
+    line.join(0, 1);
+    line.join(0, 2);
+    line.join(1, 3);
+    Solver narrowed = new Solver(line);
+    t.checkExpect(narrowed.narrow(), true);
+    Solver seeded = new Solver(line);
+    t.checkExpect(seeded.narrowFrom(narrowed.domain, narrowed.edges, new int[0], 0), true);
+    t.checkExpect(seeded.open[seeded.find(0)], 0);
+    t.checkExpect(seeded.groupSize[seeded.find(3)], 4);
+    t.checkExpect(seeded.search(2, true), 1);
+    pool.shutdown();
+  }
+
+  void testShuffledPercent(Tester t) {
+    GameEngine solved = GameEngine.generate(12, 10, new Random(4), 0);
+    t.checkExpect(new Solver(solved.board).solve(1), 1);
+    Solver solver = new Solver(solved.board);
+    solver.solve(1);
+    t.checkExpect(solver.totalClicks, 0);
+    t.checkExpect(GameEngine.generate(12, 10, new Random(4), 100).board,
+        GameEngine.generate(12, 10, new Random(4)).board);
+  }
+
+  void testPuzzleKey(Tester t) {
+    PuzzleKey key = new PuzzleKey(8, 6, PuzzleKey.EASY);
+    t.checkExpect(key.equals(new PuzzleKey(8, 6, PuzzleKey.EASY)), true);
+    t.checkExpect(key.equals(new PuzzleKey(8, 6, PuzzleKey.HARD)), false);
+    t.checkExpect(key.equals("8x6"), false);
+    t.checkExpect(key.hashCode(), new PuzzleKey(8, 6, PuzzleKey.EASY).hashCode());
+    t.checkExpect(key.toString(), "8x6@25%");
+    t.checkExpect(key.generate(3).board.size(), 48);
+    t.checkExpect(key.generate(3).seed, 3L);
+  }
+
+  void testPuzzlePool(Tester t) throws InterruptedException {
+    PuzzlePool pool = new PuzzlePool(2, 3, new Random(5));
+    PuzzleKey key = new PuzzleKey(10, 10, PuzzleKey.MEDIUM);
+    t.checkExpect(pool.fillLevel(key), 0);
+    t.checkExpect(pool.fillRatio(), 0.0);
+    pool.keep(key);
+    long waited = 0;
+    while (pool.fillLevel(key) < 3 && waited < 5000) {
+      Thread.sleep(10);
+      waited += 10;
+    }
+    t.checkExpect(pool.fillLevel(key), 3);
+    t.checkExpect(pool.fillRatio(), 1.0);
+    t.checkExpect(pool.generated.get(), 3L);
+    LightEmAll game = new LightEmAll(pool, key, 40);
+    t.checkExpect(game.width, 10);
+    t.checkExpect(pool.hits.get(), 1L);
+    t.checkExpect(pool.generationRate() > 0, true);
+    t.checkExpect(pool.millisPerPuzzle() > 0, true);
+    t.checkExpect(pool.report().startsWith("generated "), true);
+    t.checkExpect(pool.shutdown(5000), true);
+    t.checkExpect(pool.take(new PuzzleKey(4, 4, PuzzleKey.HARD)).board.size(), 16);
+    t.checkExpect(pool.misses.get(), 1L);
+  }
+
+  void testPackWires(Tester t) {
+    PackedBoard board = new PackedBoard(3, 1);
+    board.setWires(0, Wires.RIGHT);
+    board.setWires(1, Wires.LEFT | Wires.BOTTOM);
+    board.setWires(2, Wires.ALL);
+    byte[] packed = Wires.pack(board);
+    t.checkExpect(packed.length, 2);
+    t.checkExpect(packed[0], (byte) 0xC2);
+    t.checkExpect(Wires.unpack(packed, 1), Wires.LEFT | Wires.BOTTOM);
+    t.checkExpect(Wires.unpack(packed, 2), Wires.ALL);
+  }
+
+  void testBoardFile(Tester t) throws IOException {
+    Path path = Files.createTempFile("board", ".lea");
+    GameEngine game = GameEngine.generate(9, 7, 21L);
+    game.rotate(3, 4);
+    game.moveStation(Wires.RIGHT);
+    new BoardFile(game, game.solution, 17).write(path);
+    t.checkExpect(Files.size(path), BoardFile.sizeFor(9, 7));
+    t.checkExpect(BoardFile.sizeFor(9, 7), 108L);
+    BoardFile saved = BoardFile.read(path);
+    t.checkExpect(saved.width, 9);
+    t.checkExpect(saved.height, 7);
+    t.checkExpect(saved.seed, 21L);
+    t.checkExpect(saved.moves, game.numMoves);
+    t.checkExpect(saved.time, 17);
+    t.checkExpect(saved.radius, game.radius());
+    t.checkExpect(saved.game.station, game.station);
+    t.checkExpect(saved.solution, game.solution);
+    for (int cell = 0; cell < 63; cell++) {
+      t.checkExpect(saved.game.board.wires(cell), game.board.wires(cell));
+    }
+    t.checkExpect(saved.game.poweredCount(), game.poweredCount());
+    Files.delete(path);
+  }
+
+  void testBoardFileErrors(Tester t) throws IOException {
+    Path path = Files.createTempFile("board", ".lea");
+    GameEngine game = GameEngine.generate(4, 4, 8L);
+    try {
+      new BoardFile(game, new byte[3], 0);
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "A saved game needs the solved wires of all 16 cells");
+    }
+    new BoardFile(game, new byte[8], 0).write(path);
+    try {
+      BoardFile.read(path);
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), path + " has cell 0 that isn't a rotation of its solved"
+          + " wires");
+    }
+    Files.write(path, new byte[] {1, 2, 3});
+    try {
+      BoardFile.read(path);
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), path + " is too short for a saved game");
+    }
+    Files.delete(path);
+  }
+
+  void testSaveLoad(Tester t) throws IOException {
+    Path path = Files.createTempFile("game", ".lea");
+    LightEmAll classic = new LightEmAll(6, 5, new Random(7));
+    classic.onMouseClicked(new Posn(10, 10), "LeftButton");
+    classic.timePassed = 4;
+    classic.save(path);
+    LightEmAll loaded = LightEmAll.load(path, 40);
+    t.checkExpect(loaded.width, 6);
+    t.checkExpect(loaded.height, 5);
+    t.checkExpect(loaded.numMoves, 1);
+    t.checkExpect(loaded.timePassed, 4);
+    t.checkExpect(loaded.radius, classic.radius);
+    t.checkExpect(loaded.solution(), classic.solution());
+    for (int cell = 0; cell < 30; cell++) {
+      t.checkExpect(loaded.engine.board.wires(cell), classic.pieceAt(cell).wires());
+    }
+    Files.delete(path);
+  }
+
+  void testSeededBoards(Tester t) {
+    GameEngine packed = GameEngine.generate(9, 7, 5L);
+    LightEmAll classic = new LightEmAll(9, 7, 5L);
+    t.checkExpect(packed.seed, 5L);
+    t.checkExpect(classic.engine.seed, 5L);
+    t.checkExpect(classic.radius, packed.radius());
+    t.checkExpect(classic.solution(), packed.solution);
+    for (int cell = 0; cell < 63; cell++) {
+      t.checkExpect(classic.pieceAt(cell).wires(), packed.board.wires(cell));
+    }
+    t.checkExpect(GameEngine.generate(9, 7, 5L).board, packed.board);
+    t.checkExpect(GameEngine.generate(9, 7, 5L, PuzzleKey.EASY).solution, packed.solution);
+    t.checkExpect(Wires.pack(GameEngine.generate(9, 7, 5L, 0).board), packed.solution);
+    t.checkExpect(Arrays.equals(GameEngine.generate(9, 7, 6L).solution, packed.solution), false);
+    SeedStreams streams = new SeedStreams(5L);
+    t.checkExpect(streams.maze.nextLong() == streams.shuffle.nextLong(), false);
+  }
+
+  // checks that the given board is wired as a spanning tree
+  void checkSpanningTree(Tester t, PackedBoard board) {
+    int ends = 0;
+    int loose = 0;
+    for (int cell = 0; cell < board.size(); cell++) {
+      ends += Integer.bitCount(board.wires(cell));
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        if ((board.wires(cell) & dir) != 0 && !board.linked(cell, dir)) {
+          loose += 1;
+        }
+      }
+    }
+    t.checkExpect(loose, 0);
+    t.checkExpect(ends, 2 * (board.size() - 1));
+    t.checkExpect(new PowerFlood(board.size()).run(board, 0, board.size()), board.size());
+  }
+
+  void testMazeGenerators(Tester t) {
+    MazeGenerator[] mazes = {new KruskalMaze(), new FractalMaze(ForkJoinPool.commonPool()),
+      new WilsonMaze(), new PrimMaze()};
+    for (MazeGenerator maze : mazes) {
+      this.checkSpanningTree(t, PackedBoard.generate(9, 7, new Random(3), maze));
+      this.checkSpanningTree(t, PackedBoard.generate(1, 6, new Random(3), maze));
+      this.checkSpanningTree(t, PackedBoard.generate(1, 1, new Random(3), maze));
+      t.checkExpect(PackedBoard.generate(9, 7, new Random(3), maze).cells,
+          PackedBoard.generate(9, 7, new Random(3), maze).cells);
+      GameEngine packed = GameEngine.generate(8, 6, 4L, 100, maze);
+      LightEmAll classic = new LightEmAll(8, 6, 4L, maze);
+      t.checkExpect(classic.engine.seed, 4L);
+      t.checkExpect(classic.mst.size(), 47);
+      t.checkExpect(classic.solution(), packed.solution);
+      t.checkExpect(classic.radius, packed.radius());
+    }
+    t.checkExpect(PackedBoard.generate(9, 7, new Random(3)).cells,
+        PackedBoard.generate(9, 7, new Random(3), new KruskalMaze()).cells);
+    try {
+      new PackedBoard(2, 2).link(0, Wires.TOP);
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "Cell 0 has no neighbor in direction 1");
+    }
+  }
+
+  void testFractalMaze(Tester t) {
+    ForkJoinPool single = new ForkJoinPool(1);
+    ForkJoinPool several = new ForkJoinPool(4);
+    PackedBoard one = PackedBoard.generate(300, 200, new Random(8), new FractalMaze(single));
+    PackedBoard four = PackedBoard.generate(300, 200, new Random(8), new FractalMaze(several));
+    t.checkExpect(one.cells, four.cells);
+    this.checkSpanningTree(t, four);
+    this.checkSpanningTree(t, PackedBoard.generate(20000, 1, new Random(8),
+        new FractalMaze(several)));
+    single.shutdown();
+    several.shutdown();
+  }
+
+  void testIntHeap(Tester t) {
+    IntHeap heap = new IntHeap(1);
+    int[] keys = {5, -3, 9, 0, 5, 12, -7};
+    for (int i = 0; i < keys.length; i++) {
+      heap.push(keys[i], i);
+    }
+    t.checkExpect(heap.size, 7);
+    t.checkExpect(heap.pop(), 6);
+    t.checkExpect(heap.pop(), 1);
+    t.checkExpect(heap.pop(), 3);
+    int five = heap.pop();
+    t.checkExpect(five == 0 || five == 4, true);
+    t.checkExpect(heap.pop(), 4 - five);
+    t.checkExpect(heap.pop(), 2);
+    t.checkExpect(heap.pop(), 5);
+    t.checkException(new IllegalStateException("The heap is empty"), heap, "pop");
+  }
+
+  void testHistogram(Tester t) {
+    t.checkExpect(Histogram.bucket(31), 31);
+    t.checkExpect(Histogram.bucket(32), 32);
+    t.checkExpect(Histogram.bucket(64), 64);
+    t.checkExpect(Histogram.bucket(65), 64);
+    t.checkExpect(Histogram.bucket(-4), 0);
+    t.checkExpect(Histogram.lowest(Histogram.bucket(1000)) <= 1000, true);
+    t.checkExpect(Histogram.lowest(Histogram.bucket(1000) + 1) > 1000, true);
+    t.checkExpect(Histogram.bucket(Long.MAX_VALUE), Histogram.BUCKETS - 1);
+    Histogram histogram = new Histogram();
+    t.checkExpect(histogram.percentile(50), 0L);
+    for (int value = 1; value <= 100; value++) {
+      histogram.record(value);
+    }
+    t.checkExpect(histogram.count(), 100L);
+    t.checkExpect(histogram.mean(), 50.5);
+    t.checkExpect(histogram.percentile(25), 25L);
+    t.checkExpect(histogram.percentile(50) >= 50 && histogram.percentile(50) <= 51, true);
+    t.checkExpect(histogram.percentile(100), 100L);
+    t.checkExpect(histogram.max.get(), 100L);
+  }
+
+  void testMetrics(Tester t) {
+    t.checkExpect(Metrics.active, null);
+    Metrics metrics = Metrics.enable();
+    LightEmAll game = new LightEmAll(6, 5, 3L);
+    t.checkExpect(metrics.histogram(Metrics.PIECES).count() >= 1, true);
+    t.checkExpect(metrics.histogram(Metrics.MEASURE).count() >= 1, true);
+    game.makeScene();
+    t.checkExpect(metrics.histogram(Metrics.SCENE).count(), 1L);
+    t.checkExpect(metrics.histogram(Metrics.WIN).count(), 1L);
+    t.checkExpect(metrics.histogram(Metrics.POWER).count(), 1L);
+    t.checkExpect(metrics.histogram(Metrics.FRAME_CELLS).max.get(),
+        25L + game.engine.poweredCount);
+    t.checkExpect(metrics.histogram(Metrics.FRAME_IMAGES).max.get(),
+        3L + game.tiles.drawn);
+    game.makeScene();
+    t.checkExpect(metrics.histogram(Metrics.SCENE).count(), 2L);
+    t.checkExpect(metrics.histogram(Metrics.FRAME_IMAGES).percentile(50), 0L);
+    t.checkExpect(metrics.snapshot().contains("frame.images"), true);
+    Metrics.disable();
+    game.makeScene();
+    t.checkExpect(metrics.histogram(Metrics.SCENE).count(), 2L);
+  }
+
+  void testMoveJournal(Tester t) {
+    long event = MoveJournal.event(MoveJournal.ROTATE, 41);
+    t.checkExpect(MoveJournal.kind(event), MoveJournal.ROTATE);
+    t.checkExpect(MoveJournal.payload(event), 41);
+    t.checkExpect(MoveJournal.kind(MoveJournal.event(MoveJournal.STATION, Wires.LEFT)),
+        MoveJournal.STATION);
+    try {
+      MoveJournal.event(MoveJournal.ROTATE, -1);
+      t.checkExpect("no exception", "an exception");
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "Events can't have a negative payload, given -1");
+    }
+    t.checkExpect(MoveJournal.event(MoveJournal.TICK, Integer.MAX_VALUE) > 0, true);
+    MoveJournal journal = new MoveJournal();
+    t.checkExpect(journal.undo(), -1L);
+    t.checkExpect(journal.redo(), -1L);
+    t.checkExpect(journal.size, 0);
+    for (int cell = 0; cell < 20; cell++) {
+      journal.moved(MoveJournal.event(MoveJournal.ROTATE, cell));
+    }
+    t.checkExpect(journal.undo(), MoveJournal.event(MoveJournal.ROTATE, 19));
+    t.checkExpect(journal.undo(), MoveJournal.event(MoveJournal.ROTATE, 18));
+    t.checkExpect(journal.redo(), MoveJournal.event(MoveJournal.ROTATE, 18));
+    journal.moved(MoveJournal.event(MoveJournal.ROTATE, 7));
+    t.checkExpect(journal.redo(), -1L);
+    t.checkExpect(journal.size, 24);
+    t.checkExpect(journal.events[20], MoveJournal.event(MoveJournal.UNDO, 0));
+    t.checkExpect(journal.events[22], MoveJournal.event(MoveJournal.REDO, 0));
+    journal.tick();
+    journal.tick();
+    journal.tick();
+    t.checkExpect(journal.size, 25);
+    t.checkExpect(journal.events[24], MoveJournal.event(MoveJournal.TICK, 3));
+    journal.moved(MoveJournal.event(MoveJournal.ROTATE, 2));
+    journal.tick();
+    t.checkExpect(journal.size, 27);
+    t.checkExpect(journal.events[26], MoveJournal.event(MoveJournal.TICK, 1));
+    GameEngine idle = GameEngine.generate(3, 3, 4L);
+    for (int tick = 0; tick < 1000; tick++) {
+      idle.tick();
+    }
+    t.checkExpect(idle.journal.size, 1);
+    GameEngine replayed = GameEngine.generate(3, 3, 4L);
+    idle.journal.replay(replayed);
+    t.checkExpect(replayed.ticks, 1000);
+    t.checkExpect(replayed.journal.size, 1);
+    long huge = MoveJournal.event(MoveJournal.ROTATE, Integer.MAX_VALUE);
+    t.checkExpect(huge > 0, true);
+    t.checkExpect(MoveJournal.kind(huge), MoveJournal.ROTATE);
+    t.checkExpect(MoveJournal.payload(huge), Integer.MAX_VALUE);
+    t.checkExpect(MoveJournal.payload(MoveJournal.event(MoveJournal.STATION, 1 << 29)), 1 << 29);
+    t.checkException(new IllegalStateException("Event 0 is of no known kind: 7"),
+        new MoveJournal(new long[] {7}, 1), "replay", GameEngine.generate(2, 2, 1L));
+  }
+
+  void testUndoRedo(Tester t) {
+    GameEngine game = GameEngine.generate(8, 6, 9L);
+    int[] before = new int[48];
+    for (int cell = 0; cell < 48; cell++) {
+      before[cell] = game.board.wires(cell);
+    }
+    int litBefore = game.poweredCount();
+    game.rotate(0, 0);
+    game.rotate(2, 3);
+    game.rotate(2, 3);
+    t.checkExpect(game.board.wires(19), Wires.rotate(before[19], 2));
+    t.checkExpect(game.undo(), true);
+    t.checkExpect(game.board.wires(19), Wires.rotate(before[19], 1));
+    t.checkExpect(game.numMoves, 2);
+    t.checkExpect(game.redo(), true);
+    t.checkExpect(game.numMoves, 3);
+    t.checkExpect(game.redo(), false);
+    t.checkExpect(game.undo(), true);
+    t.checkExpect(game.undo(), true);
+    t.checkExpect(game.undo(), true);
+    t.checkExpect(game.undo(), false);
+    t.checkExpect(game.numMoves, 0);
+    for (int cell = 0; cell < 48; cell++) {
+      t.checkExpect(game.board.wires(cell), before[cell]);
+    }
+    t.checkExpect(game.poweredCount(), litBefore);
+    GameEngine line = new GameEngine(new PackedBoard(3, 1), 0);
+    line.board.join(0, 1);
+    line.invalidate();
+    t.checkExpect(line.moveStation(Wires.RIGHT), true);
+    t.checkExpect(line.undo(), true);
+    t.checkExpect(line.station, 0);
+    t.checkExpect(line.board.station(1), false);
+    t.checkExpect(line.redo(), true);
+    t.checkExpect(line.station, 1);
+  }
+
+  void testReplay(Tester t) {
+    GameEngine start = GameEngine.generate(10, 8, 12L);
+    GameEngine played = start.copy();
+    t.checkExpect(played.board.size(), 80);
+    t.checkExpect(played.radius(), start.radius());
+    Random rand = new Random(5);
+    for (int i = 0; i < 500; i++) {
+      int choice = rand.nextInt(10);
+      if (choice < 6) {
+        played.rotate(rand.nextInt(8), rand.nextInt(10));
+      }
+      else if (choice == 6) {
+        played.moveStation(1 << rand.nextInt(4));
+      }
+      else if (choice == 7) {
+        played.tick();
+      }
+      else if (choice == 8) {
+        played.undo();
+      }
+      else {
+        played.redo();
+      }
+    }
+    GameEngine replayed = start.copy();
+    new MoveJournal(played.journal.events, played.journal.size).replay(replayed);
+    t.checkExpect(replayed.journal.size, played.journal.size);
+    t.checkExpect(replayed.station, played.station);
+    t.checkExpect(replayed.numMoves, played.numMoves);
+    t.checkExpect(replayed.ticks, played.ticks);
+    t.checkExpect(replayed.poweredCount(), played.poweredCount());
+    t.checkExpect(Wires.pack(replayed.board), Wires.pack(played.board));
+    LightEmAll game = new LightEmAll(GameEngine.generate(5, 5, 2L), 40);
+    game.onMouseClicked(new Posn(60, 20), "LeftButton");
+    game.onTick();
+    game.onKeyEvent("z");
+    t.checkExpect(game.numMoves, 0);
+    t.checkExpect(game.engine.ticks, 1);
+    game.onKeyEvent("y");
+    t.checkExpect(game.numMoves, 1);
+    t.checkExpect(game.engine.journal.size, 4);
+    LightEmAll engineOnly = new LightEmAll(GameEngine.generate(7, 5, 4L), 40);
+    GameEngine engine = engineOnly.engine;
+    engineOnly.updatePowered();
+    t.checkExpect(engine.poweredCount() >= 1, true);
+    GamePiece furthest = engineOnly.getFurthest();
+    int far = engine.bfs().run(engine.board, engine.station);
+    t.checkExpect(engineOnly.indexOf(furthest), far);
+    t.checkExpect(furthest.wires(), engine.board.wires(far));
+    t.checkExpect(furthest.powered, engine.board.powered(far));
+    t.checkExpect(engineOnly.pieceAt(engine.station).powerStation, true);
+    engine.bfs().run(engine.board, far);
+    t.checkExpect(engineOnly.initRadius(), (engine.bfs().eccentricity + 2) / 2);
+    t.checkExpect(engineOnly.board.isEmpty(), true);
+  }
+
+  void testGameServer(Tester t) throws InterruptedException {
+    GameServer server = new GameServer(2);
+    PuzzleKey key = new PuzzleKey(6, 5, PuzzleKey.HARD);
+    int first = server.open(key, 1L);
+    int second = server.open(key, 2L);
+    t.checkExpect(server.sessionCount(), 2);
+    GameEngine start = key.generate(1L);
+    int lit = server.rotate(first, 7).join();
+    start.rotate(1, 1);
+    t.checkExpect(lit, start.poweredCount());
+    t.checkExpect(server.undo(first).join() >= 1, true);
+    t.checkExpect(server.undo(first).join(), -1);
+    t.checkExpect(server.redo(first).join() >= 1, true);
+    t.checkExpect(server.moveStation(second, 0).join(), -1);
+    Thread[] clients = new Thread[4];
+    for (int c = 0; c < clients.length; c++) {
+      int offset = c;
+      clients[c] = new Thread(() -> {
+        for (int i = 0; i < 100; i++) {
+          server.rotate(second, (i + offset) % 30);
+        }
+      });
+      clients[c].start();
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    server.send(second, MoveJournal.event(MoveJournal.TICK, 0)).join();
+    GameEngine played = server.close(second);
+    t.checkExpect(server.sessionCount(), 1);
+    t.checkExpect(played.numMoves, 400);
+    t.checkExpect(played.ticks, 1);
+    GameEngine replayed = key.generate(2L);
+    played.journal.replay(replayed);
+    t.checkExpect(Wires.pack(replayed.board), Wires.pack(played.board));
+    t.checkExpect(server.close(second), null);
+    SessionCommand missing = server.rotate(second, 0);
+    t.checkExpect(missing.isCompletedExceptionally(), true);
+    SessionCommand offBoard = server.rotate(first, 30);
+    t.checkExpect(offBoard.handle((none, e) -> e.getMessage()).join(),
+        "Session 0 has no cell 30");
+    SessionCommand negative = server.send(first, -1L << MoveJournal.KIND_BITS | MoveJournal.ROTATE);
+    t.checkExpect(negative.handle((none, e) -> e.getMessage()).join(),
+        "Session 0 has no cell -1");
+    t.checkExpect(server.shutdown(1000), true);
+  }
+
+  void testConcurrentBoard(Tester t) {
+    ConcurrentBoard board = new ConcurrentBoard(5, 3);
+    board.setWires(9, Wires.TOP | Wires.RIGHT);
+    board.setWires(8, Wires.ALL);
+    board.setWires(10, Wires.LEFT);
+    t.checkExpect(board.wires(9), Wires.TOP | Wires.RIGHT);
+    board.rotate(9);
+    t.checkExpect(board.wires(9), Wires.RIGHT | Wires.BOTTOM);
+    t.checkExpect(board.wires(8), Wires.ALL);
+    t.checkExpect(board.wires(10), Wires.LEFT);
+    t.checkExpect(board.powered(14), false);
+    board.setPowered(14, true);
+    board.setPowered(13, true);
+    board.setPowered(13, false);
+    t.checkExpect(board.powered(14), true);
+    t.checkExpect(board.powered(13), false);
+    t.checkExpect(board.poweredIn(0, 0, 3, 5), 1);
+    long[] lit = new long[1];
+    lit[0] = 1L << 12;
+    board.publish(new PowerView(lit, 1, true));
+    t.checkExpect(board.power.count, 1);
+    t.checkExpect(board.powered(12), true);
+    t.checkExpect(board.powered(14), false);
+    board.setStation(3, true);
+    board.setStation(2, false);
+    t.checkExpect(board.station(3), true);
+    board.setStation(3, false);
+    t.checkExpect(board.station.get(), -1);
+    PackedBoard copy = new PackedBoard(5, 3);
+    t.checkExpect(board.snapshot(copy), true);
+    t.checkExpect(copy.wires(9), Wires.RIGHT | Wires.BOTTOM);
+    t.checkExpect(copy.wires(14), 0);
+    t.checkExpect(board.quiet(), true);
+    t.checkExpect(board.seenStation, -1);
+    board.setWires(13, Wires.TOP);
+    board.setStation(8, true);
+    t.checkExpect(board.moveStation(8, Wires.RIGHT), false);
+    t.checkExpect(board.moveStation(8, Wires.BOTTOM), true);
+    t.checkExpect(board.moveStation(8, Wires.BOTTOM), false);
+    t.checkExpect(board.moveStation(13, 0), false);
+    t.checkExpect(board.station.get(), 13);
+    t.checkExpect(board.moving.get(board.counter(13)), 0L);
+    t.checkExpect(board.snapshot(copy), true);
+    t.checkExpect(board.seenStation, 13);
+    t.checkExpect(board.stripes <= board.wires.length(), true);
+    ConcurrentBoard wide = new ConcurrentBoard(64, 64);
+    t.checkExpect(Integer.bitCount(wide.stripes), 1);
+    t.checkExpect(wide.stripes <= ConcurrentBoard.MAX_STRIPES, true);
+    wide.rotate(4095);
+    t.checkExpect(wide.finished.get((511 & (wide.stripes - 1)) * ConcurrentBoard.PAD), 1L);
+    t.checkExpect(wide.quiet(), true);
+  }
+
+  void testCoopGame(Tester t) throws InterruptedException {
+    GameEngine game = GameEngine.generate(16, 16, 3L);
+    int[] before = new int[256];
+    for (int cell = 0; cell < 256; cell++) {
+      before[cell] = game.board.wires(cell);
+    }
+    CoopGame coop = new CoopGame(game);
+    t.checkExpect(coop.refresh().count, game.poweredCount());
+    t.checkExpect(coop.view().exact, true);
+    Thread[] players = new Thread[8];
+    int[] torn = new int[1];
+    for (int p = 0; p < players.length; p++) {
+      int player = p;
+      players[p] = new Thread(() -> {
+        for (int i = 0; i < 2000; i++) {
+          coop.rotate((i * 7 + player) % 256);
+          if (i % 100 == 0) {
+            PowerView view = coop.refresh();
+            if (view.count < 1 || view.count > 256) {
+              torn[0] += 1;
+            }
+          }
+        }
+      });
+      players[p].start();
+    }
+    for (Thread player : players) {
+      player.join();
+    }
+    t.checkExpect(torn[0], 0);
+    int[] turns = new int[256];
+    for (int p = 0; p < players.length; p++) {
+      for (int i = 0; i < 2000; i++) {
+        turns[(i * 7 + p) % 256] += 1;
+      }
+    }
+    int wrong = 0;
+    for (int cell = 0; cell < 256; cell++) {
+      if (coop.board.wires(cell) != Wires.rotate(before[cell], turns[cell])) {
+        wrong += 1;
+      }
+      game.board.setWires(cell, coop.board.wires(cell));
+    }
+    t.checkExpect(wrong, 0);
+    game.invalidate();
+    PowerView view = coop.refresh();
+    t.checkExpect(view.exact, true);
+    t.checkExpect(view.count, game.poweredCount());
+    t.checkExpect(view.powered(0), true);
+    t.checkExpect(coop.board.powered(0), true);
+    t.checkExpect(coop.isSolved(), game.isSolved());
+    coop.board.power = new PowerView(view.lit, 256, false);
+    t.checkExpect(coop.isSolved(), false);
+    t.checkExpect(coop.moveStation(0), false);
+    int from = coop.board.station.get();
+    boolean moved = coop.moveStation(Wires.RIGHT);
+    t.checkExpect(moved, coop.board.connected(0, 1));
+    t.checkExpect(coop.board.station.get(), moved ? 1 : from);
+    // players rotate the cells around the station while one moves it
+    Thread mover = new Thread(() -> {
+      for (int i = 0; i < 20000; i++) {
+        coop.moveStation(1 << (i % 4));
+      }
+    });
+    mover.start();
+    for (int p = 0; p < players.length; p++) {
+      int player = p;
+      players[p] = new Thread(() -> {
+        for (int i = 0; i < 2000; i++) {
+          int station = coop.board.station.get();
+          coop.rotate(coop.board.neighbor(station, 1 << ((i + player) % 4)) < 0 ? station
+              : coop.board.neighbor(station, 1 << ((i + player) % 4)));
+        }
+      });
+      players[p].start();
+    }
+    mover.join();
+    for (Thread player : players) {
+      player.join();
+    }
+    t.checkExpect(coop.board.quiet(), true);
+    t.checkExpect(coop.board.station.get() >= 0, true);
+    t.checkExpect(coop.board.moving.get(coop.board.counter(coop.board.station.get())), 0L);
+    t.checkExpect(coop.refresh().exact, true);
+    t.checkExpect(coop.board.station(coop.board.seenStation), true);
+  }
+
+  void testTiledBoard(Tester t) throws IOException {
+    Path path = Files.createTempFile("tiled", ".lea");
+    TiledBoard board = TiledBoard.generate(path, 37, 23, 8, 5L, 0, new KruskalMaze(), 4);
+    t.checkExpect(Files.size(path), TiledBoard.sizeFor(37, 23, 8));
+    t.checkExpect(board.tilesAcross * board.tilesDown, 15);
+    t.checkExpect(board.resident.size(), 4);
+    t.checkExpect(board.station(0), true);
+    t.checkExpect(board.cellAt(6, 9), 342);
+    t.checkExpect(board.cellAt(4, 5), -1);
+    t.checkExpect(board.cellAt(14, 56), -1);
+    int edges = 0;
+    int broken = 0;
+    for (int cell = 0; cell < board.size(); cell++) {
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        if (board.linked(cell, dir)) {
+          edges += 1;
+        }
+        else if ((board.wires(cell) & dir) != 0) {
+          broken += 1;
+        }
+      }
+    }
+    t.checkExpect(edges, 2 * (board.size() - 1));
+    t.checkExpect(broken, 0);
+    t.checkExpect(board.lightUp(0, board.size()), (long) board.size());
+    t.checkExpect(board.didWin(), true);
+    t.checkExpect(board.resident.size() <= 4, true);
+    board.clearPowered();
+    t.checkExpect(board.poweredCount, 0L);
+    t.checkExpect(board.lightUp(0, 1), (long) 1 + Integer.bitCount(board.wires(0)));
+    t.checkExpect(board.didWin(), false);
+    board.close();
+    TiledBoard reopened = TiledBoard.open(path, 2);
+    t.checkExpect(reopened.seed, 5L);
+    t.checkExpect(reopened.poweredCount, (long) 1 + Integer.bitCount(reopened.wires(0)));
+    t.checkExpect(reopened.powered(1) || reopened.powered(37), true);
+    reopened.close();
+    Path shuffled = Files.createTempFile("tiled", ".lea");
+    TiledBoard.generate(shuffled, 37, 23, 8, 5L, 100, new KruskalMaze(), 3).close();
+    TiledBoard other = TiledBoard.open(shuffled, 3);
+    reopened = TiledBoard.open(path, 3);
+    int changed = 0;
+    int ends = 0;
+    for (int cell = 0; cell < other.size(); cell++) {
+      if (other.wires(cell) != reopened.wires(cell)) {
+        changed += 1;
+      }
+      if (Integer.bitCount(other.wires(cell)) != Integer.bitCount(reopened.wires(cell))) {
+        ends += 1;
+      }
+    }
+    t.checkExpect(changed > 0, true);
+    t.checkExpect(ends, 0);
+    t.checkExpect(other.loads > 3, true);
+    other.close();
+    reopened.close();
+    Files.delete(path);
+    Files.delete(shuffled);
+  }
+
+  void testTiledBoardRadius(Tester t) throws IOException {
+    Path path = Files.createTempFile("tiled", ".lea");
+    TiledBoard.generate(path, 5, 40, 4, 9L, 0, new WilsonMaze(), 1).close();
+    TiledBoard thin = TiledBoard.open(path, 1);
+    t.checkExpect(thin.lightUp(0, thin.size()), 200L);
+    thin.close();
+    Files.write(path, new byte[30]);
+    try {
+      TiledBoard.open(path, 1);
+      t.checkExpect("opened", "failed");
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), path + " is not a tiled board");
+    }
+    try {
+      new TiledBoard(null, 70000, 70000, 256, 0L, 4);
+      t.checkExpect("tiled", "failed");
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "Can't tile a 70000x70000 board into 256x256 tiles keeping 4");
+    }
+    Files.delete(path);
+  }
+
+  void testTiledGame(Tester t) throws IOException {
+    Path path = Files.createTempFile("tiled", ".lea");
+    TiledBoard board = TiledBoard.generate(path, 30, 20, 8, 6L, 100, new KruskalMaze(), 3);
+    PackedBoard packed = new PackedBoard(30, 20);
+    for (int cell = 0; cell < 600; cell++) {
+      packed.setWires(cell, board.wires(cell));
+    }
+    GameEngine tiled = new GameEngine(board, 0);
+    GameEngine game = new GameEngine(packed, 0);
+    t.checkExpect(tiled.flood instanceof TiledFlood, true);
+    t.checkExpect(tiled.radius(), game.radius());
+    LightEmAll onFile = new LightEmAll(tiled, 20);
+    LightEmAll onHeap = new LightEmAll(game, 20);
+    String[] keys = {"right", "down", "z", "y", "left"};
+    int differ = 0;
+    for (int i = 0; i < 40; i++) {
+      Posn click = new Posn(i * 37 % 600 + 5, i * 53 % 400 + 15);
+      onFile.onMouseClicked(click, "LeftButton");
+      onHeap.onMouseClicked(click, "LeftButton");
+      onFile.onKeyEvent(keys[i % 5]);
+      onHeap.onKeyEvent(keys[i % 5]);
+      onFile.makeScene();
+      onHeap.makeScene();
+      for (int cell = 0; cell < 600; cell++) {
+        if (board.powered(cell) != packed.powered(cell)
+            || board.wires(cell) != packed.wires(cell)) {
+          differ += 1;
+        }
+      }
+    }
+    t.checkExpect(differ, 0);
+    t.checkExpect(onFile.numMoves, onHeap.numMoves);
+    t.checkExpect(tiled.station, game.station);
+    t.checkExpect(tiled.poweredCount(), game.poweredCount());
+    t.checkExpect(board.poweredCount, (long) game.poweredCount());
+    t.checkExpect(tiled.isSolved(), game.isSolved());
+    t.checkExpect(tiled.flood.allLit(600), game.flood.allLit(600));
+    t.checkExpect(tiled.flood.allLit(1), true);
+    t.checkExpect(board.resident.size() <= 3, true);
+    boolean[] listed = new boolean[600];
+    int wrong = 0;
+    for (int i = 0; i < tiled.flood.count(); i++) {
+      int cell = tiled.flood.cell(i);
+      if (listed[cell] || !board.powered(cell)) {
+        wrong += 1;
+      }
+      listed[cell] = true;
+    }
+    t.checkExpect(wrong, 0);
+    int[] inOrder = new int[tiled.flood.count()];
+    int found = 0;
+    for (int tile = 0; tile < board.poweredInTile.length; tile++) {
+      for (int offset = 0; offset < 64; offset++) {
+        int cell = board.cellAt(tile, offset);
+        if (cell >= 0 && board.powered(cell)) {
+          inOrder[found++] = cell;
+        }
+      }
+    }
+    int last = found - 1;
+    t.checkExpect(tiled.flood.cell(last), inOrder[last]);
+    t.checkExpect(tiled.flood.cell(0), inOrder[0]);
+    t.checkExpect(tiled.flood.cell(last / 2), inOrder[last / 2]);
+    try {
+      tiled.flood.cell(tiled.flood.count());
+      t.checkExpect("listed", "failed");
+    }
+    catch (IndexOutOfBoundsException e) {
+      t.checkExpect(e.getMessage(), "The last run lit " + tiled.flood.count() + " cells, not "
+          + (tiled.flood.count() + 1));
+    }
+    try {
+      tiled.flood.run(packed, 0, 5);
+      t.checkExpect("ran", "failed");
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "A tiled flood only runs on its own board");
+    }
+    board.close();
+    TiledBoard reopened = TiledBoard.open(path, 2);
+    t.checkExpect(reopened.poweredCount, (long) game.poweredCount());
+    t.checkExpect(reopened.wires(599), packed.wires(599));
+    reopened.close();
+    Files.write(path, new byte[30]);
+    try {
+      TiledBoard.open(path, 1);
+      t.checkExpect("opened", "failed");
+    }
+    catch (IOException e) {
+      Files.delete(path);
+    }
+    t.checkExpect(Files.exists(path), false);
+  }
+
+  void testDirectBoard(Tester t) {
+    DirectBoard board = new DirectBoard(3, 2);
+    t.checkExpect(DirectBoard.bytesFor(3, 2), 8L + 8 + 48);
+    t.checkExpect(DirectBoard.bytesFor(65536, 65536), 39191576576L);
+    t.checkExpect(board.memory.isDirect(), true);
+    t.checkExpect(board.memory.capacity(), 64);
+    board.setWires(4, Wires.TOP | Wires.LEFT);
+    board.setPowered(4, true);
+    board.rotate(4);
+    t.checkExpect(board.wires(4), Wires.TOP | Wires.RIGHT);
+    t.checkExpect(board.powered(4), true);
+    board.setStation(1, true);
+    t.checkExpect(board.station(1), true);
+    DirectBoard copy = board.copy();
+    t.checkExpect(copy.wires(4), Wires.TOP | Wires.RIGHT);
+    t.checkExpect(copy.powered(4), false);
+    t.checkExpect(copy.station(1), true);
+    try {
+      new DirectBoard(0, 3);
+      t.checkExpect("made", "failed");
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "Board must be at least 1x1, given 0x3");
+    }
+    try {
+      new DirectBoard(16384, 16384);
+      t.checkExpect("made", "failed");
+    }
+    catch (IllegalArgumentException e) {
+      t.checkExpect(e.getMessage(), "A 16384x16384 board needs 2449473536 bytes,"
+          + " more than one direct buffer holds");
+    }
+  }
+
+  void testOffHeapGame(Tester t) {
+    GameEngine game = GameEngine.generate(12, 9, 4L);
+    GameEngine direct = game.offHeap();
+    t.checkExpect(direct.board instanceof DirectBoard, true);
+    t.checkExpect(direct.flood instanceof DirectFlood, true);
+    t.checkExpect(game.flood instanceof PowerFlood, true);
+    t.checkExpect(direct.bfs, null);
+    t.checkExpect(direct.metrics.diameter, game.metrics.diameter);
+    t.checkExpect(direct.metrics.centerDistance.isDirect(), true);
+    t.checkExpect(direct.metrics.centerDistance(107), game.metrics.centerDistance(107));
+    t.checkExpect(direct.radius(), game.radius());
+    t.checkExpect(direct.seed, 4L);
+    t.checkExpect(direct.solution, game.solution);
+    LightEmAll packed = new LightEmAll(game, 40);
+    LightEmAll offHeap = new LightEmAll(direct, 40);
+    String[] keys = {"right", "down", "z", "y", "left"};
+    int differ = 0;
+    for (int i = 0; i < 40; i++) {
+      Posn click = new Posn(i * 37 % 480 + 5, i * 53 % 360 + 5);
+      packed.onMouseClicked(click, "LeftButton");
+      offHeap.onMouseClicked(click, "LeftButton");
+      packed.onKeyEvent(keys[i % 5]);
+      offHeap.onKeyEvent(keys[i % 5]);
+      packed.makeScene();
+      offHeap.makeScene();
+      for (int cell = 0; cell < 108; cell++) {
+        if (game.powered(cell) != direct.powered(cell)
+            || game.board.wires(cell) != direct.board.wires(cell)) {
+          differ += 1;
+        }
+      }
+    }
+    t.checkExpect(differ, 0);
+    t.checkExpect(offHeap.numMoves, packed.numMoves);
+    t.checkExpect(direct.station, game.station);
+    t.checkExpect(direct.poweredCount(), game.poweredCount());
+    t.checkExpect(direct.isSolved(), game.isSolved());
+    t.checkExpect(direct.flood.allLit(108), game.flood.allLit(108));
+    GameEngine copy = direct.copy();
+    t.checkExpect(copy.board instanceof DirectBoard, true);
+    t.checkExpect(copy.poweredCount(), game.poweredCount());
+    GameEngine unshuffled = GameEngine.generate(6, 6, 2L, 0);
+    GameEngine solved = unshuffled.offHeap();
+    t.checkExpect(solved.poweredCount(), unshuffled.poweredCount());
+    t.checkExpect(solved.flood.allLit(36), unshuffled.flood.allLit(36));
+  }
+
+  void testOffHeapServer(Tester t) throws InterruptedException {
+    GameServer server = new GameServer(2, true);
+    int session = server.open(new PuzzleKey(8, 8, PuzzleKey.HARD), 6L);
+    int lit = server.rotate(session, 9).join();
+    GameEngine game = server.close(session);
+    t.checkExpect(game.board instanceof DirectBoard, true);
+    t.checkExpect(lit, game.poweredCount());
+    t.checkExpect(game.numMoves, 1);
+    server.shutdown(1000);
+  }
+
+  void testRefreshPowered(Tester t) {
+    GameEngine game = GameEngine.generate(6, 6, 3L);
+    game.refresh();
+    t.checkExpect(game.powerDirty, false);
+    int version = game.version;
+    game.refresh();
+    t.checkExpect(game.version, version);
+    int far = -1;
+    for (int cell = 0; cell < 36 && far < 0; cell++) {
+      boolean touches = game.board.powered(cell);
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        int next = game.board.neighbor(cell, dir);
+        touches = touches || (next >= 0 && game.board.powered(next));
+      }
+      if (!touches) {
+        far = cell;
+      }
+    }
+    if (far >= 0) {
+      game.rotate(game.board.row(far), game.board.col(far));
+      t.checkExpect(game.powerDirty, false);
+    }
+    game.rotate(0, 0);
+    t.checkExpect(game.powerDirty, true);
+    int lit = game.poweredCount();
+    int flagged = 0;
+    for (int cell = 0; cell < 36; cell++) {
+      if (game.board.powered(cell)) {
+        flagged += 1;
+      }
+    }
+    t.checkExpect(flagged, lit);
+    t.checkExpect(new PowerFlood(36).run(game.board, game.station, game.radius()), lit);
+    game.invalidate();
+    t.checkExpect(game.powerDirty, true);
+    game.refresh();
+    for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+      if (game.moveStation(dir)) {
+        t.checkExpect(game.powerDirty, true);
+        t.checkExpect(game.poweredCount(),
+            new PowerFlood(36).run(game.board, game.station, game.radius()));
+      }
+    }
+  }
+
+  void testBoardCopy(Tester t) throws IOException {
+    LightEmAll classic = new LightEmAll(new Random(4));
+    GameEngine pieces = classic.engine;
+    pieces.refresh();
+    GameEngine copy = pieces.copy();
+    t.checkExpect(copy.board instanceof PackedBoard, true);
+    t.checkExpect(copy.board.wires(9), pieces.board.wires(9));
+    t.checkExpect(copy.board.station(pieces.station), true);
+    t.checkExpect(copy.board.powered(pieces.station), false);
+    t.checkExpect(copy.poweredCount(), pieces.poweredCount());
+    copy.rotate(1, 1);
+    t.checkExpect(copy.board.wires(9) == pieces.board.wires(9), false);
+    ConcurrentBoard shared = new ConcurrentBoard(GameEngine.generate(4, 4, 2L).board);
+    ConcurrentBoard sharedCopy = shared.copy();
+    t.checkExpect(sharedCopy.wires(5), shared.wires(5));
+    t.checkExpect(sharedCopy.station.get(), shared.station.get());
+    Path path = Files.createTempFile("tiled", ".lea");
+    TiledBoard tiled = TiledBoard.generate(path, 9, 7, 4, 3L, 100, new KruskalMaze(), 2);
+    tiled.lightUp(0, 5);
+    TiledBoard tiledCopy = tiled.copy();
+    int differ = 0;
+    for (int cell = 0; cell < 63; cell++) {
+      if (tiledCopy.wires(cell) != tiled.wires(cell) || tiledCopy.powered(cell)) {
+        differ += 1;
+      }
+    }
+    t.checkExpect(differ, 0);
+    t.checkExpect(tiledCopy.station(0), true);
+    t.checkExpect(tiledCopy.poweredCount, 0L);
+    t.checkExpect(tiledCopy.resident.capacity, 2);
+    tiledCopy.rotate(8);
+    t.checkExpect(tiledCopy.wires(8) == tiled.wires(8), tiled.wires(8) == Wires.ALL);
+    GameEngine onCopy = new GameEngine(tiled, 0).copy();
+    t.checkExpect(onCopy.board instanceof TiledBoard, true);
+    t.checkExpect(onCopy.poweredCount(), new GameEngine(tiled, 0).poweredCount());
+    ((TiledBoard) onCopy.board).close();
+    tiledCopy.close();
+    tiled.close();
+    Files.delete(path);
+  }
 }
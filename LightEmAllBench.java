@@ -0,0 +1,340 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javalib.worldimages.Posn;
+
+// one operation to measure
+interface BenchOp {
+  // runs the operation once, returning anything so the work can't be skipped
+  long run();
+}
+
+// measures board generation, power updates, win checks, clicks and scene
+// building over square boards of several sizes, reporting the time and the
+// bytes allocated per operation. every board is generated from a fixed seed,
+// so runs of different versions measure the same boards.
+// usage: java LightEmAllBench [-sizes 8,64,256] [-only click,didWin]
+//   [-warmup millis] [-measure millis] [-classic largest classic board]
+//   [-metrics text|jfr] to print a Metrics snapshot at the end, with jfr
+//   also committing every sample as a JFR event
+class LightEmAllBench {
+  static final String[] BENCHMARKS = {
+    "construct", "generate", "updatePowered", "didWin", "click", "engineClick", "makeScene",
+    "clickScene", "viewScene", "solve",
+    "parallelSolve", "kruskalMaze", "fractalMaze", "wilsonMaze", "primMaze", "replay",
+    "sharedRotate", "sharedRefresh"};
+  // the number of events in every replayed journal
+  static final int JOURNAL = 10000;
+
+  int warmupMillis;
+  int measureMillis;
+  // LightEmAll keeps a GamePiece and edge objects per cell,
+  // so the classic boards only go up to this size
+  int classicLimit;
+  long seed;
+  // everything the operations return, so the JIT can't drop their work
+  long sink;
+  // the time parallelSolve spent narrowing tiles and searching the whole
+  // board at every size
+  HashMap<Integer, long[]> parallelSplit;
+  com.sun.management.ThreadMXBean threads;
+
+  // constructor
+  LightEmAllBench(int warmupMillis, int measureMillis, int classicLimit, long seed) {
+    this.warmupMillis = warmupMillis;
+    this.measureMillis = measureMillis;
+    this.classicLimit = classicLimit;
+    this.seed = seed;
+    this.parallelSplit = new HashMap<Integer, long[]>();
+    this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  }
+
+  // the bytes allocated by this thread so far
+  long allocated() {
+    return this.threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // runs the operation for the warmup time, then measures it for the
+  // measurement time, always running it at least once
+  BenchResult measure(String name, int size, BenchOp op) {
+    long warmupEnd = System.nanoTime() + this.warmupMillis * 1000000L;
+    while (System.nanoTime() < warmupEnd) {
+      this.sink += op.run();
+    }
+    long ops = 0;
+    long bytesBefore = this.allocated();
+    long start = System.nanoTime();
+    long end = start + this.measureMillis * 1000000L;
+    long now = start;
+    while (ops == 0 || now < end) {
+      this.sink += op.run();
+      ops += 1;
+      now = System.nanoTime();
+    }
+    long bytes = this.allocated() - bytesBefore;
+    return new BenchResult(name, size, ops, (double) (now - start) / ops, (double) bytes / ops);
+  }
+
+  // measures the named benchmark on a size x size board,
+  // returns null if the benchmark doesn't run at that size
+  BenchResult run(String name, int size) {
+    Random rand = new Random(this.seed);
+    boolean classic = size <= this.classicLimit;
+    switch (name) {
+      case "construct":
+        if (!classic) {
+          return null;
+        }
+        return this.measure(name, size, () -> new LightEmAll(size, size, rand).mst.size());
+      case "generate":
+        return this.measure(name, size, () -> GameEngine.generate(size, size, rand).radius());
+      case "updatePowered": {
+        if (!classic) {
+          return null;
+        }
+        LightEmAll game = new LightEmAll(size, size, this.seed);
+        return this.measure(name, size, () -> {
+          game.updatePowered();
+          return game.engine.poweredCount;
+        });
+      }
+      case "didWin": {
+        if (!classic) {
+          return null;
+        }
+        LightEmAll game = new LightEmAll(size, size, this.seed);
+        return this.measure(name, size, () -> game.didWin() ? 1 : 0);
+      }
+      case "click": {
+        if (!classic) {
+          return null;
+        }
+        LightEmAll game = new LightEmAll(size, size, this.seed);
+        int cellSize = game.cellSize;
+        return this.measure(name, size, () -> {
+          game.onMouseClicked(new Posn(rand.nextInt(size) * cellSize,
+              rand.nextInt(size) * cellSize), "LeftButton");
+          return game.engine.poweredCount();
+        });
+      }
+      case "engineClick": {
+        GameEngine game = GameEngine.generate(size, size, this.seed);
+        return this.measure(name, size, () -> {
+          game.rotate(rand.nextInt(size), rand.nextInt(size));
+          return game.poweredCount();
+        });
+      }
+      case "makeScene": {
+        if (!classic) {
+          return null;
+        }
+        LightEmAll game = new LightEmAll(size, size, this.seed);
+        return this.measure(name, size, () -> game.makeScene().hashCode());
+      }
+      case "clickScene": {
+        if (!classic) {
+          return null;
+        }
+        LightEmAll game = new LightEmAll(size, size, this.seed);
+        int cellSize = game.cellSize;
+        return this.measure(name, size, () -> {
+          game.onMouseClicked(new Posn(rand.nextInt(size) * cellSize,
+              rand.nextInt(size) * cellSize), "LeftButton");
+          return game.makeScene().hashCode();
+        });
+      }
+      case "solve": {
+        GameEngine engine = GameEngine.generate(size, size, this.seed);
+        return this.measure(name, size, () -> {
+          Solver solver = new Solver(engine.board);
+          solver.solve(1);
+          return solver.totalClicks;
+        });
+      }
+      case "parallelSolve": {
+        GameEngine engine = GameEngine.generate(size, size, this.seed);
+        long[] split = new long[2];
+        this.parallelSplit.put(size, split);
+        return this.measure(name, size, () -> {
+          ParallelSolver solver = new ParallelSolver(engine.board, 64, ForkJoinPool.commonPool());
+          solver.solve(1);
+          split[0] += solver.tileNanos;
+          split[1] += solver.boardNanos;
+          return solver.solver.totalClicks;
+        });
+      }
+      case "viewScene": {
+        GameEngine engine = GameEngine.generate(size, size, this.seed);
+        LightEmAll game = new LightEmAll(engine, 200);
+        game.view().fit();
+        return this.measure(name, size, () -> {
+          engine.rotate(rand.nextInt(size), rand.nextInt(size));
+          return game.makeScene().hashCode();
+        });
+      }
+      case "kruskalMaze":
+      case "fractalMaze":
+      case "wilsonMaze":
+      case "primMaze": {
+        MazeGenerator maze = LightEmAllBench.maze(name);
+        return this.measure(name, size,
+            () -> PackedBoard.generate(size, size, rand, maze).wires(0));
+      }
+      case "replay": {
+        GameEngine start = GameEngine.generate(size, size, this.seed);
+        GameEngine played = start.copy();
+        for (int i = 0; i < JOURNAL; i++) {
+          int choice = rand.nextInt(10);
+          if (choice < 6) {
+            played.rotate(rand.nextInt(size), rand.nextInt(size));
+          }
+          else if (choice == 6) {
+            played.moveStation(1 << rand.nextInt(4));
+          }
+          else if (choice == 7) {
+            played.tick();
+          }
+          else if (choice == 8) {
+            played.undo();
+          }
+          else {
+            played.redo();
+          }
+        }
+        MoveJournal journal = played.journal;
+        return this.measure(name, size, () -> {
+          GameEngine game = start.copy();
+          journal.replay(game);
+          return game.poweredCount();
+        });
+      }
+      case "sharedRotate": {
+        CoopGame coop = new CoopGame(GameEngine.generate(size, size, this.seed));
+        return this.measure(name, size, () -> {
+          int cell = rand.nextInt(size * size);
+          coop.rotate(cell);
+          return coop.board.wires(cell);
+        });
+      }
+      case "sharedRefresh": {
+        CoopGame coop = new CoopGame(GameEngine.generate(size, size, this.seed));
+        return this.measure(name, size, () -> {
+          coop.rotate(rand.nextInt(size * size));
+          return coop.refresh().count;
+        });
+      }
+      default:
+        throw new IllegalArgumentException("No benchmark named " + name
+            + ", pick from " + Arrays.toString(BENCHMARKS));
+    }
+  }
+
+  // runs every given benchmark at every given size and prints the results
+  ArrayList<BenchResult> runAll(String[] names, int[] sizes) {
+    ArrayList<BenchResult> results = new ArrayList<BenchResult>();
+    System.out.println(String.format("%-16s %11s %10s %16s %16s",
+        "benchmark", "board", "ops", "ns/op", "bytes/op"));
+    for (String name : names) {
+      for (int size : sizes) {
+        BenchResult result = this.run(name, size);
+        if (result != null) {
+          System.out.println(result);
+          results.add(result);
+        }
+      }
+    }
+    for (BenchResult parallel : results) {
+      for (BenchResult sequential : results) {
+        if (parallel.name.equals("parallelSolve") && sequential.name.equals("solve")
+            && parallel.size == sequential.size) {
+          long[] split = this.parallelSplit.get(parallel.size);
+          System.out.println(String.format("parallelSolve at %dx%d takes %.2fx the time of solve, "
+              + "%.0f%% of it narrowing tiles on %d workers, the rest searching on one",
+              parallel.size, parallel.size, parallel.nanosPerOp / sequential.nanosPerOp,
+              100.0 * split[0] / Math.max(1, split[0] + split[1]),
+              ForkJoinPool.commonPool().getParallelism()));
+        }
+      }
+    }
+    for (BenchResult result : results) {
+      if (result.name.endsWith("Maze")) {
+        PackedBoard board = PackedBoard.generate(result.size, result.size,
+            new Random(this.seed), LightEmAllBench.maze(result.name));
+        System.out.println(String.format("%s at %dx%d: tree diameter %d",
+            result.name, result.size, result.size, LightEmAllBench.treeDiameter(board)));
+      }
+    }
+    return results;
+  }
+
+  // the longest path along the wires of the given board, found by flooding
+  // it from any cell and then again from the last cell reached
+  static int treeDiameter(Board board) {
+    PowerFlood flood = new PowerFlood(board.size());
+    flood.run(board, 0, board.size());
+    int far = flood.queue[flood.count - 1];
+    flood.run(board, far, board.size());
+    return flood.depth[flood.queue[flood.count - 1]];
+  }
+
+  // the maze generator measured by the given benchmark
+  static MazeGenerator maze(String name) {
+    switch (name) {
+      case "kruskalMaze":
+        return new KruskalMaze();
+      case "fractalMaze":
+        return new FractalMaze(ForkJoinPool.commonPool());
+      case "wilsonMaze":
+        return new WilsonMaze();
+      case "primMaze":
+        return new PrimMaze();
+      default:
+        throw new IllegalArgumentException("No maze generator named " + name);
+    }
+  }
+
+  // parses a comma separated list of sizes
+  static int[] parseSizes(String sizes) {
+    return Arrays.stream(sizes.split(",")).mapToInt(Integer::parseInt).toArray();
+  }
+
+  public static void main(String[] args) {
+    int[] sizes = {8, 32, 128, 512, 1000, 2000};
+    String[] names = BENCHMARKS;
+    int warmup = 1000;
+    int measure = 2000;
+    int classic = 512;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "-sizes":
+          sizes = LightEmAllBench.parseSizes(args[i + 1]);
+          break;
+        case "-only":
+          names = args[i + 1].split(",");
+          break;
+        case "-warmup":
+          warmup = Integer.parseInt(args[i + 1]);
+          break;
+        case "-measure":
+          measure = Integer.parseInt(args[i + 1]);
+          break;
+        case "-classic":
+          classic = Integer.parseInt(args[i + 1]);
+          break;
+        case "-metrics":
+          Metrics.enable().jfr = args[i + 1].equals("jfr");
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    LightEmAllBench bench = new LightEmAllBench(warmup, measure, classic, 42);
+    bench.runAll(names, sizes);
+    if (Metrics.active != null) {
+      System.out.print(Metrics.active.snapshot());
+    }
+  }
+}
@@ -0,0 +1,10 @@
+import java.util.random.RandomGenerator;
+
+// a way of wiring a board into a random spanning tree. generators only add
+// wires through Board.link and Board.join and walk the grid with
+// Board.neighbor, so they work the same on packed boards and GamePieces
+interface MazeGenerator {
+  // wires the given board, which has no wires yet, into a spanning tree,
+  // drawing every choice from the given generator
+  void generate(Board board, RandomGenerator rand);
+}
@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// one recorded sample as a JFR event, committed only while a recording
+// with this event enabled is running
+@Name("lightemall.Metric")
+@Label("LightEmAll Metric")
+@Category("LightEmAll")
+@Description("A timed phase or per-frame count recorded by Metrics")
+class MetricEvent extends Event {
+  @Label("Metric")
+  String metric;
+
+  @Label("Duration")
+  @Timespan(Timespan.NANOSECONDS)
+  long nanos;
+
+  @Label("Value")
+  long value;
+}
+
+// opt-in instrumentation of the hot paths, i.e., a latency histogram for
+// every phase of generating a board, every power update, win check and
+// scene, and histograms of the cells visited and images allocated per
+// frame. nothing is measured until enable is called: every hot path reads
+// active once and skips its timing when it is null. the results are a
+// text snapshot, and with jfr set every sample is also a MetricEvent
+class Metrics {
+  // the histograms, the first few time board generation
+  static final int PIECES = 0;
+  static final int MAZE = 1;
+  static final int SHUFFLE = 2;
+  static final int MEASURE = 3;
+  static final int POWER = 4;
+  static final int WIN = 5;
+  static final int SCENE = 6;
+  static final int FRAME_CELLS = 7;
+  static final int FRAME_IMAGES = 8;
+  static final String[] NAMES = {
+    "generate.pieces", "generate.maze", "generate.shuffle", "generate.measure",
+    "power", "win", "scene", "frame.cells", "frame.images"};
+  // the first histogram that counts things instead of timing them
+  static final int FIRST_COUNT = FRAME_CELLS;
+
+  // the metrics being recorded, null while instrumentation is off. volatile,
+  // so enabling them on one thread is seen by the game and bench threads
+  static volatile Metrics active;
+
+  Histogram[] histograms;
+  // every cell visited by power updates and scenes, every image allocated
+  LongAdder cellsVisited;
+  LongAdder imagesAllocated;
+  // whether every sample is also committed as a MetricEvent
+  boolean jfr;
+
+  // constructor
+  Metrics() {
+    this.histograms = new Histogram[NAMES.length];
+    for (int i = 0; i < NAMES.length; i++) {
+      this.histograms[i] = new Histogram();
+    }
+    this.cellsVisited = new LongAdder();
+    this.imagesAllocated = new LongAdder();
+  }
+
+  // starts recording into fresh metrics, returns them
+  static Metrics enable() {
+    Metrics.active = new Metrics();
+    return Metrics.active;
+  }
+
+  // stops recording
+  static void disable() {
+    Metrics.active = null;
+  }
+
+  // records the time since the given start in the given histogram,
+  // returns the time now so the next phase can start from it
+  long lap(int metric, long start) {
+    long now = System.nanoTime();
+    this.histograms[metric].record(now - start);
+    if (this.jfr) {
+      MetricEvent event = new MetricEvent();
+      event.metric = NAMES[metric];
+      event.nanos = now - start;
+      event.commit();
+    }
+    return now;
+  }
+
+  // records a count in the given histogram
+  void count(int metric, long value) {
+    this.histograms[metric].record(value);
+    if (this.jfr) {
+      MetricEvent event = new MetricEvent();
+      event.metric = NAMES[metric];
+      event.value = value;
+      event.commit();
+    }
+  }
+
+  // the histogram of the given metric
+  Histogram histogram(int metric) {
+    return this.histograms[metric];
+  }
+
+  // every metric recorded so far, one line each, times in microseconds
+  String snapshot() {
+    StringBuilder text = new StringBuilder(String.format("%-18s %10s %10s %10s %10s %10s%n",
+        "metric", "count", "mean", "p50", "p99", "max"));
+    for (int metric = 0; metric < NAMES.length; metric++) {
+      Histogram histogram = this.histograms[metric];
+      double scale = metric < FIRST_COUNT ? 1e3 : 1;
+      text.append(String.format("%-18s %10d %10.1f %10.1f %10.1f %10.1f%n", NAMES[metric],
+          histogram.count(), histogram.mean() / scale, histogram.percentile(50) / scale,
+          histogram.percentile(99) / scale, histogram.max.get() / scale));
+    }
+    text.append(String.format("cells visited %d, images allocated %d%n",
+        this.cellsVisited.sum(), this.imagesAllocated.sum()));
+    return text.toString();
+  }
+}
@@ -0,0 +1,157 @@
+import java.util.Arrays;
+
+// an append-only log of everything done to a game, one long per event,
+// i.e., the low three bits are the kind of event and the rest its payload,
+// the cell of a rotation, the direction of a station move or the number of
+// ticks in a row, which share one event so an idle game's log stays the
+// same size. undos and
+// redos are logged too, so replaying the log onto the board the game started
+// from repeats the game exactly. the moves that can still be undone or
+// redone are kept on two stacks, so undo and redo take constant time
+class MoveJournal {
+  static final int ROTATE = 0;
+  static final int STATION = 1;
+  static final int TICK = 2;
+  static final int UNDO = 3;
+  static final int REDO = 4;
+  static final int KIND_BITS = 3;
+
+  long[] events;
+  int size;
+  // the moves that undo takes back from the top, and the ones redo repeats
+  long[] done;
+  int doneCount;
+  long[] undone;
+  int undoneCount;
+
+  // constructor
+  MoveJournal() {
+    this.events = new long[16];
+    this.done = new long[16];
+    this.undone = new long[16];
+  }
+
+  // constructor, for replaying the given events
+  MoveJournal(long[] events, int size) {
+    this();
+    for (int i = 0; i < size; i++) {
+      this.append(events[i]);
+    }
+  }
+
+  // the event of the given kind with the given payload, which can't be
+  // negative, so no event is negative and -1 can stand for no event
+  static long event(int kind, int payload) {
+    if (payload < 0) {
+      throw new IllegalArgumentException("Events can't have a negative payload, given " + payload);
+    }
+    return (long) payload << KIND_BITS | kind;
+  }
+
+  // the kind of the given event
+  static int kind(long event) {
+    return (int) (event & ((1 << KIND_BITS) - 1));
+  }
+
+  // the cell, direction or tick count of the given event
+  static int payload(long event) {
+    return (int) (event >>> KIND_BITS);
+  }
+
+  // adds the given event to the end of the log
+  void append(long event) {
+    if (this.size == this.events.length) {
+      this.events = Arrays.copyOf(this.events, 2 * this.size);
+    }
+    this.events[this.size] = event;
+    this.size += 1;
+  }
+
+  // logs a tick of the game clock, counting it in the last event if that
+  // is a run of ticks too
+  void tick() {
+    int last = this.size - 1;
+    if (last >= 0 && MoveJournal.kind(this.events[last]) == TICK) {
+      this.events[last] = MoveJournal.event(TICK, MoveJournal.payload(this.events[last]) + 1);
+    }
+    else {
+      this.append(MoveJournal.event(TICK, 1));
+    }
+  }
+
+  // logs a move that was just made, which can no longer be followed by a redo
+  void moved(long event) {
+    this.append(event);
+    this.done = MoveJournal.push(this.done, this.doneCount, event);
+    this.doneCount += 1;
+    this.undoneCount = 0;
+  }
+
+  // logs an undo, returns the move to take back or -1 if there is none,
+  // which no event can be
+  long undo() {
+    if (this.doneCount == 0) {
+      return -1;
+    }
+    this.doneCount -= 1;
+    long move = this.done[this.doneCount];
+    this.undone = MoveJournal.push(this.undone, this.undoneCount, move);
+    this.undoneCount += 1;
+    this.append(MoveJournal.event(UNDO, 0));
+    return move;
+  }
+
+  // logs a redo, returns the move to make again or -1 if there is none
+  long redo() {
+    if (this.undoneCount == 0) {
+      return -1;
+    }
+    this.undoneCount -= 1;
+    long move = this.undone[this.undoneCount];
+    this.done = MoveJournal.push(this.done, this.doneCount, move);
+    this.doneCount += 1;
+    this.append(MoveJournal.event(REDO, 0));
+    return move;
+  }
+
+  // puts the given event on top of a stack holding count events,
+  // returns the stack, which is grown if it was full
+  static long[] push(long[] stack, int count, long event) {
+    long[] into = count == stack.length ? Arrays.copyOf(stack, 2 * count) : stack;
+    into[count] = event;
+    return into;
+  }
+
+  // plays every logged event on the given game, which should be in the state
+  // this log's game started from. nothing is drawn and the power is only
+  // brought up to date once at the end
+  void replay(GameEngine game) {
+    for (int i = 0; i < this.size; i++) {
+      long event = this.events[i];
+      switch (MoveJournal.kind(event)) {
+        case ROTATE: {
+          int cell = MoveJournal.payload(event);
+          game.rotate(game.board.row(cell), game.board.col(cell));
+          break;
+        }
+        case STATION:
+          game.moveStation(MoveJournal.payload(event));
+          break;
+        case TICK:
+          for (int tick = 0; tick < MoveJournal.payload(event); tick++) {
+            game.tick();
+          }
+          break;
+        case UNDO:
+          game.undo();
+          break;
+        case REDO:
+          game.redo();
+          break;
+        default:
+          throw new IllegalStateException("Event " + i + " is of no known kind: " + event);
+      }
+    }
+    game.refresh();
+  }
+}
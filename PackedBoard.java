@@ -0,0 +1,150 @@
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+// a compact board that keeps every cell in a single byte,
+// i.e., the low four bits are the wire mask and the next two bits
+// say whether the cell is powered or holds the power station.
+// cells are stored in row-major order and neighbors are found by index arithmetic
+class PackedBoard implements Board {
+  static final int POWERED = 16;
+  static final int STATION = 32;
+
+  int width;
+  int height;
+  byte[] cells;
+  // the number of powered cells, kept up to date by setFlag
+  int poweredCount;
+  // the flood used by lightUp, made on first use and then reused
+  PowerFlood flood;
+
+  // constructor
+  PackedBoard(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Board must be at least 1x1, given "
+          + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.cells = new byte[width * height];
+  }
+
+  // generates a board wired as a random spanning tree, drawing every edge
+  // weight from the given generator so the same seed gives the same board
+  static PackedBoard generate(int width, int height, RandomGenerator rand) {
+    return PackedBoard.generate(width, height, rand, new KruskalMaze());
+  }
+
+  // generates a board wired as a spanning tree by the given maze generator
+  static PackedBoard generate(int width, int height, RandomGenerator rand,
+      MazeGenerator maze) {
+    PackedBoard packed = new PackedBoard(width, height);
+    maze.generate(packed, rand);
+    return packed;
+  }
+
+  // the number of columns
+  public int width() {
+    return this.width;
+  }
+
+  // the number of rows
+  public int height() {
+    return this.height;
+  }
+
+  // the number of cells on this board
+  public int size() {
+    return this.cells.length;
+  }
+
+  // the wire mask of the given cell
+  public int wires(int cell) {
+    return this.cells[cell] & Wires.ALL;
+  }
+
+  // replaces the wire mask of the given cell
+  public void setWires(int cell, int mask) {
+    this.cells[cell] = (byte) ((this.cells[cell] & ~Wires.ALL) | (mask & Wires.ALL));
+  }
+
+  // is the given cell powered?
+  public boolean powered(int cell) {
+    return (this.cells[cell] & POWERED) != 0;
+  }
+
+  // sets whether the given cell is powered
+  public void setPowered(int cell, boolean on) {
+    this.setFlag(cell, POWERED, on);
+  }
+
+  // is the power station on the given cell?
+  public boolean station(int cell) {
+    return (this.cells[cell] & STATION) != 0;
+  }
+
+  // sets whether the power station is on the given cell
+  public void setStation(int cell, boolean on) {
+    this.setFlag(cell, STATION, on);
+  }
+
+  // sets or clears the given flag bit of a cell
+  void setFlag(int cell, int flag, boolean on) {
+    if ((flag & POWERED) != 0 && on != this.powered(cell)) {
+      this.poweredCount += on ? 1 : -1;
+    }
+    if (on) {
+      this.cells[cell] |= flag;
+    }
+    else {
+      this.cells[cell] &= ~flag;
+    }
+  }
+
+  // wires up a spanning tree using kruskal's algorithm, taking the edges
+  // lazily in the given order, see KruskalMaze.connect
+  int kruskal(GridEdges edges, IntStream order) {
+    return KruskalMaze.connect(this, edges, order);
+  }
+
+  // a copy of this board's wires and station, with no cell powered
+  public PackedBoard copy() {
+    PackedBoard copy = new PackedBoard(this.width, this.height);
+    System.arraycopy(this.cells, 0, copy.cells, 0, this.cells.length);
+    copy.clearPowered();
+    return copy;
+  }
+
+  // clears the powered flag of every cell
+  void clearPowered() {
+    for (int cell = 0; cell < this.cells.length; cell++) {
+      this.cells[cell] &= ~POWERED;
+    }
+    this.poweredCount = 0;
+  }
+
+  // powers every cell connected to the given powered cell that is at most
+  // radius steps away, returns how many cells became powered
+  int lightUp(int start, int radius) {
+    if (!this.powered(start) || radius <= 0) {
+      return 0;
+    }
+    if (this.flood == null) {
+      this.flood = new PowerFlood(this.size());
+    }
+    int lit = 0;
+    this.flood.run(this, start, radius);
+    for (int i = 0; i < this.flood.count; i++) {
+      int cell = this.flood.queue[i];
+      if (!this.powered(cell)) {
+        this.setPowered(cell, true);
+        lit += 1;
+      }
+    }
+    return lit;
+  }
+
+  // checks if every cell on the board is powered
+  boolean didWin() {
+    return this.poweredCount == this.cells.length;
+  }
+}
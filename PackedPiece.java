@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+
+// a GamePiece that reads and writes its state through a PackedBoard,
+// the fields mirror the packed cell and are refreshed after every change
+class PackedPiece extends GamePiece {
+  PackedBoard packed;
+  int cell;
+
+  // constructor
+  PackedPiece(PackedBoard packed, int row, int col) {
+    super(row, col);
+    this.packed = packed;
+    this.cell = packed.index(row, col);
+    this.load();
+  }
+
+  // copies the wires and flags of a board of GamePieces,
+  // the board is given as a list of rows like LightEmAll.board
+  static PackedBoard pack(ArrayList<ArrayList<GamePiece>> board) {
+    PackedBoard packed = new PackedBoard(board.get(0).size(), board.size());
+    for (int row = 0; row < packed.height; row++) {
+      for (int col = 0; col < packed.width; col++) {
+        GamePiece piece = board.get(row).get(col);
+        int cell = packed.index(row, col);
+        packed.setWires(cell, piece.wires());
+        packed.setPowered(cell, piece.powered);
+        packed.setStation(cell, piece.powerStation);
+      }
+    }
+    return packed;
+  }
+
+  // copies the packed state of this cell into the GamePiece fields
+  void load() {
+    super.setWires(this.packed.wires(this.cell));
+    this.powered = this.packed.powered(this.cell);
+    this.powerStation = this.packed.station(this.cell);
+  }
+
+  // replaces the wires of the packed cell
+  void setWires(int mask) {
+    this.packed.setWires(this.cell, mask);
+    this.load();
+  }
+
+  // rotates the packed cell by 90 degrees
+  void rotateHelp() {
+    this.packed.rotate(this.cell);
+    this.load();
+  }
+
+  // checks if this piece is connected to another piece
+  boolean isConnected(GamePiece other) {
+    if (other instanceof PackedPiece && ((PackedPiece) other).packed == this.packed) {
+      return this.packed.connected(this.cell, ((PackedPiece) other).cell);
+    }
+    return super.isConnected(other);
+  }
+
+  // lights up the packed cells reachable from this one
+  void lightUp(int radius) {
+    this.packed.lightUp(this.cell, radius);
+    this.load();
+  }
+}
@@ -0,0 +1,142 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// narrows the tiles of a rectangle of the board, splitting it in half until
+// a single tile is left, so the pool can spread the tiles over its workers
+class TileNarrowing extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  ParallelSolver solver;
+  int first;
+  int last;
+
+  // constructor, narrows the tiles numbered from first up to last
+  TileNarrowing(ParallelSolver solver, int first, int last) {
+    this.solver = solver;
+    this.first = first;
+    this.last = last;
+  }
+
+  // narrows the tiles, or splits them between two tasks
+  protected void compute() {
+    if (this.last - this.first == 1) {
+      this.solver.narrowTile(this.first);
+    }
+    else {
+      int middle = (this.first + this.last) >>> 1;
+      RecursiveAction.invokeAll(new TileNarrowing(this.solver, this.first, middle),
+          new TileNarrowing(this.solver, middle, this.last));
+    }
+  }
+}
+
+// solves big boards with the narrowing spread over several cores, i.e., the
+// board is cut into tiles and every tile is narrowed by its own Solver on a
+// ForkJoinPool, treating the edges that leave the tile as undecided. one
+// Solver over the whole board then starts from the narrowed rotations and
+// decided edges of every tile, propagates and probes only the cells on tile
+// borders, which settles the edges between tiles, and searches whatever is
+// still open. that search runs on a single thread, so more cores only
+// shorten the narrowing, see tileNanos and boardNanos
+class ParallelSolver {
+  Board board;
+  int tileSize;
+  ForkJoinPool pool;
+  // the rotations left for every cell once its tile was narrowed, and the
+  // state of its right and bottom edge, laid out like Solver.edges
+  int[] narrowed;
+  int[] decided;
+  // the cells with an edge into another tile
+  int[] border;
+  int borderSize;
+  // whether any tile turned out impossible, or ran out of budget first
+  boolean impossible;
+  boolean gaveUp;
+  // the solver over the whole board, made by solve
+  Solver solver;
+  // the time spent narrowing tiles and solving the whole board
+  long tileNanos;
+  long boardNanos;
+
+  // constructor
+  ParallelSolver(Board board, int tileSize, ForkJoinPool pool) {
+    if (tileSize < 1) {
+      throw new IllegalArgumentException("Tiles must be at least 1x1, given " + tileSize);
+    }
+    this.board = board;
+    this.tileSize = tileSize;
+    this.pool = pool;
+    this.narrowed = new int[board.size()];
+    this.decided = new int[2 * board.size()];
+    this.border = new int[board.size()];
+    for (int cell = 0; cell < board.size(); cell++) {
+      int row = board.row(cell) % tileSize;
+      int col = board.col(cell) % tileSize;
+      if (row == 0 && cell >= board.width() || col == 0 && board.col(cell) > 0
+          || row == tileSize - 1 && cell + board.width() < board.size()
+          || col == tileSize - 1 && board.col(cell) < board.width() - 1) {
+        this.border[this.borderSize++] = cell;
+      }
+    }
+  }
+
+  // the number of tiles across the board
+  int tilesAcross() {
+    return (this.board.width() + this.tileSize - 1) / this.tileSize;
+  }
+
+  // the number of tiles down the board
+  int tilesDown() {
+    return (this.board.height() + this.tileSize - 1) / this.tileSize;
+  }
+
+  // narrows the given tile and copies its rotations and the edges it decided
+  // out, every tile writes only its own cells
+  void narrowTile(int tile) {
+    int top = tile / this.tilesAcross() * this.tileSize;
+    int left = tile % this.tilesAcross() * this.tileSize;
+    int rows = Math.min(this.tileSize, this.board.height() - top);
+    int cols = Math.min(this.tileSize, this.board.width() - left);
+    Solver local = new Solver(this.board, top, left, rows, cols);
+    if (!local.narrow()) {
+      if (local.gaveUp) {
+        this.gaveUp = true;
+      }
+      else {
+        this.impossible = true;
+      }
+    }
+    for (int cell = 0; cell < local.size; cell++) {
+      int boardCell = local.boardCell(cell);
+      this.narrowed[boardCell] = local.domain[cell];
+      for (int dir = Wires.RIGHT; dir <= Wires.BOTTOM; dir <<= 1) {
+        if (local.neighbor(cell, dir) >= 0) {
+          this.decided[dir == Wires.RIGHT ? 2 * boardCell : 2 * boardCell + 1] =
+              local.edges[local.edge(cell, dir)];
+        }
+      }
+    }
+  }
+
+  // narrows every tile in parallel, then solves the whole board from there
+  // the way Solver.solve does, returning the number of solutions found.
+  // only the border cells are narrowed again, see Solver.narrowFrom
+  int solve(int limit) {
+    long start = System.nanoTime();
+    this.impossible = false;
+    this.gaveUp = false;
+    this.pool.invoke(new TileNarrowing(this, 0, this.tilesAcross() * this.tilesDown()));
+    long narrowedAt = System.nanoTime();
+    this.tileNanos = narrowedAt - start;
+    this.solver = new Solver(this.board);
+    this.solver.gaveUp = this.gaveUp;
+    int found = 0;
+    if (!this.impossible && !this.gaveUp) {
+      boolean ok = this.solver.narrowFrom(this.narrowed, this.decided, this.border,
+          this.borderSize);
+      found = this.solver.search(limit, ok);
+    }
+    this.boardNanos = System.nanoTime() - narrowedAt;
+    return found;
+  }
+}
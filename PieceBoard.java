@@ -0,0 +1,81 @@
+// the GamePieces of a LightEmAll game seen as a Board, so the game's rules
+// can run on them. every call reads the game's current board and neighbor
+// lists, so the view follows whatever board the game is given
+class PieceBoard implements Board {
+  LightEmAll game;
+
+  // constructor
+  PieceBoard(LightEmAll game) {
+    this.game = game;
+  }
+
+  // the number of columns
+  public int width() {
+    return this.game.width;
+  }
+
+  // the number of rows
+  public int height() {
+    return this.game.height;
+  }
+
+  // the wire mask of the given cell
+  public int wires(int cell) {
+    return this.game.pieceAt(cell).wires();
+  }
+
+  // replaces the wire mask of the given cell
+  public void setWires(int cell, int mask) {
+    this.game.pieceAt(cell).setWires(mask);
+  }
+
+  // rotates the given cell the way the piece itself rotates
+  public void rotate(int cell) {
+    this.game.pieceAt(cell).rotateHelp();
+  }
+
+  // is the given cell powered?
+  public boolean powered(int cell) {
+    return this.game.pieceAt(cell).powered;
+  }
+
+  // sets whether the given cell is powered
+  public void setPowered(int cell, boolean on) {
+    this.game.pieceAt(cell).powered = on;
+  }
+
+  // is the power station on the given cell?
+  public boolean station(int cell) {
+    return this.game.pieceAt(cell).powerStation;
+  }
+
+  // sets whether the power station is on the given cell
+  public void setStation(int cell, boolean on) {
+    this.game.pieceAt(cell).powerStation = on;
+  }
+
+  // writes the indices of the given cell's neighbor list into out
+  public int neighbors(int cell, int[] out) {
+    int count = 0;
+    for (GamePiece n : this.game.pieceAt(cell).neighbors) {
+      out[count++] = this.game.indexOf(n);
+    }
+    return count;
+  }
+
+  // a packed copy of the pieces' wires and station, since the pieces
+  // belong to the game this view reads
+  public PackedBoard copy() {
+    PackedBoard copy = new PackedBoard(this.width(), this.height());
+    for (int cell = 0; cell < this.size(); cell++) {
+      copy.setWires(cell, this.wires(cell));
+      copy.setStation(cell, this.station(cell));
+    }
+    return copy;
+  }
+
+  // checks if the pieces at two indices are connected
+  public boolean connected(int cell, int other) {
+    return this.game.pieceAt(cell).isConnected(this.game.pieceAt(other));
+  }
+}
@@ -0,0 +1,82 @@
+// an iterative flood of power from the station across connected cells,
+// i.e., a breadth-first search that stops at the station's radius.
+// its queue keeps the cells lit by the last run, so the next run can clear
+// them without touching the rest of the board and without allocating
+class PowerFlood implements Flood {
+  int[] queue;
+  int[] depth;
+  long[] lit;
+  int[] adjacent;
+  // the number of cells lit by the last run, they are queue[0 .. count)
+  int count;
+
+  // constructor, for boards of up to the given number of cells
+  PowerFlood(int size) {
+    this.queue = new int[size];
+    this.depth = new int[size];
+    this.lit = new long[(size + 63) >>> 6];
+    this.adjacent = new int[4];
+  }
+
+  // lights the source and every cell connected to it at most radius steps
+  // away, returns how many cells are lit
+  public int run(CellGraph graph, int source, int radius) {
+    for (int i = 0; i < this.count; i++) {
+      this.lit[this.queue[i] >>> 6] &= ~(1L << this.queue[i]);
+    }
+    int head = 0;
+    int tail = 0;
+    this.queue[tail++] = source;
+    this.light(source);
+    this.depth[source] = 0;
+    while (head < tail) {
+      int cell = this.queue[head++];
+      if (this.depth[cell] < radius) {
+        int neighbors = graph.neighbors(cell, this.adjacent);
+        for (int i = 0; i < neighbors; i++) {
+          int next = this.adjacent[i];
+          if (!this.lit(next) && graph.connected(cell, next)) {
+            this.light(next);
+            this.depth[next] = this.depth[cell] + 1;
+            this.queue[tail++] = next;
+          }
+        }
+      }
+    }
+    this.count = tail;
+    return tail;
+  }
+
+  // the number of cells lit by the last run
+  public int count() {
+    return this.count;
+  }
+
+  // the i-th cell lit by the last run
+  public int cell(int i) {
+    return this.queue[i];
+  }
+
+  // was the given cell lit by the last run?
+  public boolean lit(int cell) {
+    return (this.lit[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // checks if all of the first size cells were lit by the last run,
+  // a word at a time
+  public boolean allLit(int size) {
+    int full = size >>> 6;
+    for (int word = 0; word < full; word++) {
+      if (this.lit[word] != -1L) {
+        return false;
+      }
+    }
+    long rest = (1L << (size & 63)) - 1;
+    return (size & 63) == 0 || (this.lit[full] & rest) == rest;
+  }
+
+  // marks the given cell as lit
+  void light(int cell) {
+    this.lit[cell >>> 6] |= 1L << cell;
+  }
+}
@@ -0,0 +1,20 @@
+// the powered cells of a shared board as of one snapshot, never changed
+// once published, so any number of readers can share it
+final class PowerView {
+  final long[] lit;
+  final int count;
+  // whether the snapshot saw the board at a single moment
+  final boolean exact;
+
+  // constructor
+  PowerView(long[] lit, int count, boolean exact) {
+    this.lit = lit;
+    this.count = count;
+    this.exact = exact;
+  }
+
+  // was the given cell powered?
+  boolean powered(int cell) {
+    return (this.lit[cell >>> 6] & (1L << cell)) != 0;
+  }
+}
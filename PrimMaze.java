@@ -0,0 +1,39 @@
+import java.util.random.RandomGenerator;
+
+// randomized prim's algorithm, i.e., the tree grows from a random cell by
+// always taking the lightest edge out of it, every edge weighted at random
+// as it is reached. the frontier lives in an IntHeap with every edge packed
+// into an int as its cell times four plus the index of its direction
+class PrimMaze implements MazeGenerator {
+  // grows the tree from a random cell until the frontier is empty
+  public void generate(Board board, RandomGenerator rand) {
+    int size = board.size();
+    boolean[] inTree = new boolean[size];
+    IntHeap frontier = new IntHeap(size);
+    int start = rand.nextInt(size);
+    inTree[start] = true;
+    this.grow(board, start, inTree, frontier, rand);
+    while (frontier.size > 0) {
+      int edge = frontier.pop();
+      int cell = edge >>> 2;
+      int dir = 1 << (edge & 3);
+      int next = board.neighbor(cell, dir);
+      if (!inTree[next]) {
+        inTree[next] = true;
+        board.link(cell, dir);
+        this.grow(board, next, inTree, frontier, rand);
+      }
+    }
+  }
+
+  // adds the edges from the given cell to its neighbors outside the tree
+  // to the frontier, each with a random weight
+  void grow(Board board, int cell, boolean[] inTree, IntHeap frontier, RandomGenerator rand) {
+    for (int index = 0; index < 4; index++) {
+      int next = board.neighbor(cell, 1 << index);
+      if (next >= 0 && !inTree[next]) {
+        frontier.push(rand.nextInt(), cell << 2 | index);
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+// the kind of puzzle a game asks for, i.e., its size and how much of
+// it is shuffled
+final class PuzzleKey {
+  static final int EASY = 25;
+  static final int MEDIUM = 50;
+  static final int HARD = 100;
+
+  final int width;
+  final int height;
+  // the percent of cells shuffled
+  final int difficulty;
+
+  // constructor
+  PuzzleKey(int width, int height, int difficulty) {
+    this.width = width;
+    this.height = height;
+    this.difficulty = difficulty;
+  }
+
+  // generates a puzzle of this kind from the given seed
+  GameEngine generate(long seed) {
+    return GameEngine.generate(this.width, this.height, seed, this.difficulty);
+  }
+
+  // keys of the same size and difficulty are equal
+  public boolean equals(Object other) {
+    if (!(other instanceof PuzzleKey)) {
+      return false;
+    }
+    PuzzleKey key = (PuzzleKey) other;
+    return this.width == key.width && this.height == key.height
+        && this.difficulty == key.difficulty;
+  }
+
+  // a hash agreeing with equals
+  public int hashCode() {
+    return (this.width * 31 + this.height) * 31 + this.difficulty;
+  }
+
+  // the key as size and difficulty
+  public String toString() {
+    return this.width + "x" + this.height + "@" + this.difficulty + "%";
+  }
+}
@@ -0,0 +1,144 @@
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// generates puzzles on background threads ahead of time, keeping a bounded
+// queue of ready games for every kind of puzzle it was asked to keep, so
+// starting a game takes a puzzle off a queue instead of generating one.
+// every puzzle taken is replaced by a new generation task
+class PuzzlePool {
+  ExecutorService workers;
+  // the most ready puzzles of each kind
+  int capacity;
+  ConcurrentHashMap<PuzzleKey, ArrayBlockingQueue<GameEngine>> ready;
+  // seeds every generation task, so tasks don't share a generator
+  Random seeds;
+  // metrics, puzzles generated in the background and the time spent on
+  // them, and takes served from a queue or generated on the spot
+  AtomicLong generated;
+  AtomicLong generatingNanos;
+  AtomicLong hits;
+  AtomicLong misses;
+  long started;
+
+  // constructor, for the given number of worker threads
+  PuzzlePool(int threads, int capacity, Random seeds) {
+    if (threads < 1 || capacity < 1) {
+      throw new IllegalArgumentException("A pool needs at least one thread and one puzzle, given "
+          + threads + " threads and " + capacity + " puzzles");
+    }
+    this.workers = Executors.newFixedThreadPool(threads, task -> {
+      Thread thread = new Thread(task, "puzzle-pool");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.capacity = capacity;
+    this.ready = new ConcurrentHashMap<PuzzleKey, ArrayBlockingQueue<GameEngine>>();
+    this.seeds = seeds;
+    this.generated = new AtomicLong();
+    this.generatingNanos = new AtomicLong();
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+    this.started = System.nanoTime();
+  }
+
+  // starts keeping puzzles of the given kind ready, returns its queue
+  ArrayBlockingQueue<GameEngine> keep(PuzzleKey key) {
+    ArrayBlockingQueue<GameEngine> queue = this.ready.get(key);
+    if (queue == null) {
+      ArrayBlockingQueue<GameEngine> fresh = new ArrayBlockingQueue<GameEngine>(this.capacity);
+      queue = this.ready.putIfAbsent(key, fresh);
+      if (queue == null) {
+        queue = fresh;
+        for (int i = 0; i < this.capacity; i++) {
+          this.refill(key, queue);
+        }
+      }
+    }
+    return queue;
+  }
+
+  // queues the generation of one puzzle of the given kind, unless the pool
+  // was shut down, even while this is queueing it
+  void refill(PuzzleKey key, ArrayBlockingQueue<GameEngine> queue) {
+    long seed = this.seeds.nextLong();
+    try {
+      this.workers.execute(() -> {
+        long start = System.nanoTime();
+        GameEngine puzzle = key.generate(seed);
+        this.generatingNanos.addAndGet(System.nanoTime() - start);
+        this.generated.incrementAndGet();
+        queue.offer(puzzle);
+      });
+    }
+    catch (RejectedExecutionException e) {
+      // the pool was shut down while queueing, nothing will take the puzzle
+    }
+  }
+
+  // a puzzle of the given kind, taken from its queue if one is ready and
+  // generated on the spot otherwise. either way a replacement is queued
+  GameEngine take(PuzzleKey key) {
+    ArrayBlockingQueue<GameEngine> queue = this.keep(key);
+    GameEngine puzzle = queue.poll();
+    if (puzzle == null) {
+      this.misses.incrementAndGet();
+      puzzle = key.generate(this.seeds.nextLong());
+    }
+    else {
+      this.hits.incrementAndGet();
+    }
+    this.refill(key, queue);
+    return puzzle;
+  }
+
+  // the number of ready puzzles of the given kind
+  int fillLevel(PuzzleKey key) {
+    ArrayBlockingQueue<GameEngine> queue = this.ready.get(key);
+    return queue == null ? 0 : queue.size();
+  }
+
+  // the share of the capacity of every kept kind that is ready, from 0 to 1
+  double fillRatio() {
+    int total = 0;
+    for (ArrayBlockingQueue<GameEngine> queue : this.ready.values()) {
+      total += queue.size();
+    }
+    return this.ready.isEmpty() ? 0 : (double) total / (this.capacity * this.ready.size());
+  }
+
+  // puzzles generated in the background per second since the pool started
+  double generationRate() {
+    double seconds = (System.nanoTime() - this.started) / 1e9;
+    return seconds <= 0 ? 0 : this.generated.get() / seconds;
+  }
+
+  // the average time a worker spends generating one puzzle, in milliseconds
+  double millisPerPuzzle() {
+    long count = this.generated.get();
+    return count == 0 ? 0 : this.generatingNanos.get() / 1e6 / count;
+  }
+
+  // the metrics of the pool, one line per kept kind
+  String report() {
+    StringBuilder text = new StringBuilder(String.format(
+        "generated %d (%.1f/s, %.2f ms each), hits %d, misses %d, %.0f%% full%n",
+        this.generated.get(), this.generationRate(), this.millisPerPuzzle(),
+        this.hits.get(), this.misses.get(), this.fillRatio() * 100));
+    for (PuzzleKey key : this.ready.keySet()) {
+      text.append(String.format("  %s: %d/%d ready%n", key, this.fillLevel(key), this.capacity));
+    }
+    return text.toString();
+  }
+
+  // stops the workers, waiting up to the given time for running tasks
+  boolean shutdown(long millis) throws InterruptedException {
+    this.workers.shutdownNow();
+    return this.workers.awaitTermination(millis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,20 @@
+import java.util.SplittableRandom;
+
+// the generators a puzzle is made from, all split off a single seed, i.e.,
+// one for the edge weights of the maze and one for shuffling its cells.
+// a seed, width and height always give the same board, whether it is built
+// from GamePieces or packed, and since the streams are independent, how
+// much of a board gets shuffled never changes its maze
+final class SeedStreams {
+  final long seed;
+  final SplittableRandom maze;
+  final SplittableRandom shuffle;
+
+  // constructor
+  SeedStreams(long seed) {
+    SplittableRandom root = new SplittableRandom(seed);
+    this.seed = seed;
+    this.maze = root.split();
+    this.shuffle = root.split();
+  }
+}
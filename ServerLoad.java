@@ -0,0 +1,132 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+// drives a GameServer the way many players would, i.e., opens the given
+// number of sessions, then has every client thread send rotations to random
+// sessions, each waiting for its command to finish before sending the next.
+// reports the heap each session takes, how many sessions fit in a gigabyte,
+// the commands per second and the p50 and p99 latency of a command. with
+// -offheap 1 the sessions are played on DirectBoards and the direct memory
+// each takes is reported too.
+// usage: java ServerLoad [-sessions 1000] [-size 32] [-clients 4]
+//   [-threads workers] [-commands per client] [-offheap 0|1]
+class ServerLoad {
+  int sessions;
+  int size;
+  int clients;
+  int threads;
+  int commands;
+  long seed;
+  boolean offHeap;
+
+  // constructor
+  ServerLoad(int sessions, int size, int clients, int threads, int commands, long seed,
+      boolean offHeap) {
+    this.sessions = sessions;
+    this.size = size;
+    this.clients = clients;
+    this.threads = threads;
+    this.commands = commands;
+    this.seed = seed;
+    this.offHeap = offHeap;
+  }
+
+  // the bytes of heap in use after a collection
+  static long heapUsed() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  // the bytes of direct buffers in use
+  static long directUsed() {
+    long used = 0;
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        used += pool.getMemoryUsed();
+      }
+    }
+    return used;
+  }
+
+  // opens the sessions, runs the clients and prints what they measured
+  String run() throws InterruptedException {
+    GameServer server = new GameServer(this.threads, this.offHeap);
+    PuzzleKey key = new PuzzleKey(this.size, this.size, PuzzleKey.HARD);
+    long before = ServerLoad.heapUsed();
+    long direct = ServerLoad.directUsed();
+    for (int i = 0; i < this.sessions; i++) {
+      server.open(key, this.seed + i);
+    }
+    double perSession = (double) (ServerLoad.heapUsed() - before) / this.sessions;
+    double directPerSession = (double) (ServerLoad.directUsed() - direct) / this.sessions;
+    Histogram latency = new Histogram();
+    Thread[] threads = new Thread[this.clients];
+    for (int c = 0; c < this.clients; c++) {
+      Random rand = new Random(this.seed * 31 + c);
+      threads[c] = new Thread(() -> {
+        for (int i = 0; i < this.commands; i++) {
+          int session = rand.nextInt(this.sessions);
+          int cell = rand.nextInt(this.size * this.size);
+          long start = System.nanoTime();
+          server.rotate(session, cell).join();
+          latency.record(System.nanoTime() - start);
+        }
+      }, "load-client-" + c);
+    }
+    long start = System.nanoTime();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    server.shutdown(1000);
+    return String.format("%d sessions of %dx%d on %d workers: %.0f bytes of heap each"
+        + " (%.0f direct), %.0f per GB of heap%n"
+        + "%d clients sent %d commands: %.0f/s, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+        this.sessions, this.size, this.size, this.threads, perSession, directPerSession,
+        (1L << 30) / perSession, this.clients, latency.count(), latency.count() / seconds,
+        latency.percentile(50) / 1e3, latency.percentile(99) / 1e3, latency.max.get() / 1e3);
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int sessions = 1000;
+    int size = 32;
+    int clients = 4;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int commands = 50000;
+    boolean offHeap = false;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      int value = Integer.parseInt(args[i + 1]);
+      switch (args[i]) {
+        case "-sessions":
+          sessions = value;
+          break;
+        case "-size":
+          size = value;
+          break;
+        case "-clients":
+          clients = value;
+          break;
+        case "-threads":
+          threads = value;
+          break;
+        case "-commands":
+          commands = value;
+          break;
+        case "-offheap":
+          offHeap = value != 0;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    System.out.print(new ServerLoad(sessions, size, clients, threads, commands, 42,
+        offHeap).run());
+  }
+}
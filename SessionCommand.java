@@ -0,0 +1,12 @@
+import java.util.concurrent.CompletableFuture;
+
+// a command sent to a session, i.e., a MoveJournal event that completes
+// with the number of powered cells once it ran, or -1 if it changed nothing
+class SessionCommand extends CompletableFuture<Integer> {
+  final long event;
+
+  // constructor
+  SessionCommand(long event) {
+    this.event = event;
+  }
+}
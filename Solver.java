@@ -0,0 +1,717 @@
+import java.util.Arrays;
+
+// finds the rotations that wire a shuffled board back into a single tree,
+// i.e., every cell keeps the set of its rotations still possible and every
+// wire must meet a wire of its neighbor. deciding an edge narrows the cells
+// on both ends, which is propagated until nothing changes, and a search with
+// backtracking picks rotations only where propagation gets stuck.
+// the decided wires are kept in a disjoint-set forest, so an edge that would
+// close a loop is ruled out, a group with one way out left is wired through
+// it and a group wired shut away from the rest fails right away. rotations
+// that fail as soon as they are tried are dropped before each pick, and
+// each pick goes to the undecided cell that failed propagation most often
+// so far, so the search settles the hard part of the board first.
+// every change is recorded on a trail, so backtracking undoes it in place.
+// a solver can also work on a rectangle of the board, leaving the edges
+// out of it undecided, which is how ParallelSolver narrows its tiles, and
+// can start from rotations and edges narrowed that way, see narrowFrom
+class Solver {
+  // the states of an edge
+  static final int UNKNOWN = 0;
+  static final int WIRE = 1;
+  static final int NONE = 2;
+  // the tables recorded on the trail
+  static final int DOMAIN = 0;
+  static final int EDGES = 1;
+  static final int PARENT = 2;
+  static final int SIZE = 3;
+  static final int OPEN = 4;
+  static final int NEXT = 5;
+  // the number of upcoming cells probed after every pick
+  static final int LOOKAHEAD = 32;
+  // the steps a solve takes before giving up, see budget
+  static final long BUDGET = 1000000000L;
+
+  // the rectangle of the board being solved, cells are numbered within it.
+  // edges leaving it into the rest of the board are never decided here
+  int top;
+  int left;
+  int width;
+  int height;
+  int size;
+  int boardWidth;
+  int boardHeight;
+  // the wire mask of every cell as it was given
+  int[] base;
+  // the rotations still possible for every cell, bit r means r clicks
+  int[] domain;
+  // the state of the right and bottom edge of every cell, at 2 * cell and
+  // 2 * cell + 1
+  int[] edges;
+  // the groups of cells joined by decided wires, with the size of each group
+  // and the number of its edges still undecided. next links the cells of
+  // every group in a ring
+  int[] parent;
+  int[] groupSize;
+  int[] open;
+  int[] next;
+  int[][] tables;
+  // the changes to undo, as table, index and old value
+  int[] trail;
+  int trailSize;
+  // whether changes go on the trail, which the propagation before the
+  // search doesn't need since it is never undone
+  boolean recording;
+  // the cells whose rotations changed and still need propagating
+  int[] queue;
+  boolean[] queued;
+  int head;
+  int queueSize;
+  // the undecided cells in the order the search picks them when none has
+  // failed more than the others, i.e., each patch of neighboring undecided
+  // cells in turn, so the search finishes one patch before moving on
+  int[] order;
+  int orderSize;
+  // the search, the first undecided position in order, the position picked,
+  // the trail size and the rotation tried at each depth
+  int[] starts;
+  int[] picks;
+  int[] marks;
+  int[] chosen;
+  // how often propagating every cell failed, which is never undone
+  int[] failures;
+  // the most steps a solve takes before giving up, where a step is a cell
+  // propagated, walked in a group or looked at for the next pick, so the
+  // budget bounds the time it takes. the steps taken so far and whether it
+  // gave up
+  long budget;
+  long steps;
+  boolean gaveUp;
+  // results
+  int solutions;
+  int decisions;
+  // the clicks each cell needs in the first solution found, and their sum,
+  // which is the fewest clicks only if that solution is the only one
+  int[] clicks;
+  int totalClicks;
+  // whether the last probed cell lost any rotations
+  boolean probed;
+
+  // constructor, reads the wires of every cell of the given board
+  Solver(Board board) {
+    this(board, 0, 0, board.height(), board.width());
+  }
+
+  // constructor, reads the wires of the given rectangle of the board
+  Solver(Board board, int top, int left, int rows, int cols) {
+    this.top = top;
+    this.left = left;
+    this.width = cols;
+    this.height = rows;
+    this.size = rows * cols;
+    this.boardWidth = board.width();
+    this.boardHeight = board.height();
+    this.base = new int[this.size];
+    this.domain = new int[this.size];
+    this.edges = new int[2 * this.size];
+    this.parent = new int[this.size];
+    this.groupSize = new int[this.size];
+    this.open = new int[this.size];
+    this.next = new int[this.size];
+    this.tables = new int[][] {this.domain, this.edges, this.parent, this.groupSize, this.open,
+        this.next};
+    this.trail = new int[3 * 1024];
+    this.budget = BUDGET;
+    this.queue = new int[this.size];
+    this.queued = new boolean[this.size];
+    this.order = new int[this.size];
+    this.starts = new int[this.size];
+    this.picks = new int[this.size];
+    this.marks = new int[this.size];
+    this.chosen = new int[this.size];
+    this.failures = new int[this.size];
+    for (int cell = 0; cell < this.size; cell++) {
+      this.base[cell] = board.wires(this.boardCell(cell));
+      this.parent[cell] = cell;
+      this.next[cell] = cell;
+      this.groupSize[cell] = 1;
+      int offBoard = 0;
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        if (this.neighbor(cell, dir) >= 0 || (this.outside(cell) & dir) != 0) {
+          this.open[cell] += 1;
+        }
+        else {
+          offBoard |= dir;
+        }
+      }
+      this.domain[cell] = Solver.rotations(this.base[cell], offBoard);
+    }
+  }
+
+  // the rotations of the given mask with no wire in the given directions,
+  // keeping only the fewest clicks for rotations that give the same mask
+  static int rotations(int mask, int blocked) {
+    int found = 0;
+    for (int r = 0; r < 4; r++) {
+      int rotated = Wires.rotate(mask, r);
+      boolean repeat = false;
+      for (int earlier = 0; earlier < r; earlier++) {
+        repeat = repeat || Wires.rotate(mask, earlier) == rotated;
+      }
+      if (!repeat && (rotated & blocked) == 0) {
+        found |= 1 << r;
+      }
+    }
+    return found;
+  }
+
+  // the rotations of the given mask that put a wire in the given direction
+  static int withWire(int mask, int dir) {
+    int found = 0;
+    for (int r = 0; r < 4; r++) {
+      if ((Wires.rotate(mask, r) & dir) != 0) {
+        found |= 1 << r;
+      }
+    }
+    return found;
+  }
+
+  // the cell next to the given one in the given direction, or -1 off the board
+  int neighbor(int cell, int dir) {
+    int col = cell % this.width;
+    switch (dir) {
+      case Wires.TOP:
+        return cell >= this.width ? cell - this.width : -1;
+      case Wires.RIGHT:
+        return col < this.width - 1 ? cell + 1 : -1;
+      case Wires.BOTTOM:
+        return cell + this.width < this.size ? cell + this.width : -1;
+      default:
+        return col > 0 ? cell - 1 : -1;
+    }
+  }
+
+  // the index on the whole board of the given cell
+  int boardCell(int cell) {
+    return (this.top + cell / this.width) * this.boardWidth + this.left + cell % this.width;
+  }
+
+  // the directions from the given cell into the board outside the rectangle
+  int outside(int cell) {
+    int row = cell / this.width;
+    int col = cell % this.width;
+    int dirs = 0;
+    if (row == 0 && this.top > 0) {
+      dirs |= Wires.TOP;
+    }
+    if (col == this.width - 1 && this.left + this.width < this.boardWidth) {
+      dirs |= Wires.RIGHT;
+    }
+    if (row == this.height - 1 && this.top + this.height < this.boardHeight) {
+      dirs |= Wires.BOTTOM;
+    }
+    if (col == 0 && this.left > 0) {
+      dirs |= Wires.LEFT;
+    }
+    return dirs;
+  }
+
+  // the edge leaving the given cell in the given direction
+  int edge(int cell, int dir) {
+    switch (dir) {
+      case Wires.TOP:
+        return 2 * (cell - this.width) + 1;
+      case Wires.RIGHT:
+        return 2 * cell;
+      case Wires.BOTTOM:
+        return 2 * cell + 1;
+      default:
+        return 2 * (cell - 1);
+    }
+  }
+
+  // changes an entry of the given table, remembering the old value
+  void set(int table, int index, int value) {
+    if (!this.recording) {
+      this.tables[table][index] = value;
+      return;
+    }
+    if (this.trailSize + 3 > this.trail.length) {
+      this.trail = Arrays.copyOf(this.trail, this.trail.length * 2);
+    }
+    int[] values = this.tables[table];
+    this.trail[this.trailSize] = table;
+    this.trail[this.trailSize + 1] = index;
+    this.trail[this.trailSize + 2] = values[index];
+    this.trailSize += 3;
+    values[index] = value;
+  }
+
+  // undoes every change made since the trail had the given size
+  void undo(int mark) {
+    while (this.trailSize > mark) {
+      this.trailSize -= 3;
+      this.tables[this.trail[this.trailSize]][this.trail[this.trailSize + 1]] =
+          this.trail[this.trailSize + 2];
+    }
+  }
+
+  // the group of the given cell. paths are only halved while changes aren't
+  // recorded, since a halved path would outlive undoing the join it skips,
+  // otherwise joining the smaller group under the larger keeps them short
+  int find(int cell) {
+    int current = cell;
+    while (this.parent[current] != current) {
+      if (!this.recording) {
+        this.parent[current] = this.parent[this.parent[current]];
+      }
+      current = this.parent[current];
+    }
+    return current;
+  }
+
+  // narrows the rotations of a cell, returns false if none are left
+  boolean restrict(int cell, int rotations) {
+    if (rotations == this.domain[cell]) {
+      return true;
+    }
+    if (rotations == 0) {
+      return false;
+    }
+    this.set(DOMAIN, cell, rotations);
+    if (!this.queued[cell]) {
+      this.queued[cell] = true;
+      this.queue[(this.head + this.queueSize) % this.size] = cell;
+      this.queueSize += 1;
+    }
+    return true;
+  }
+
+  // decides whether there is a wire between two adjacent cells, returns
+  // false if that closes a loop or wires a group shut away from the rest
+  boolean decide(int cell, int dir, int other, boolean wire) {
+    this.set(EDGES, this.edge(cell, dir), wire ? WIRE : NONE);
+    int group = this.find(cell);
+    int otherGroup = this.find(other);
+    this.set(OPEN, group, this.open[group] - 1);
+    this.set(OPEN, otherGroup, this.open[otherGroup] - 1);
+    if (wire) {
+      if (group == otherGroup) {
+        return false;
+      }
+      if (this.groupSize[group] < this.groupSize[otherGroup]) {
+        int swap = group;
+        group = otherGroup;
+        otherGroup = swap;
+      }
+      this.closeLoops(otherGroup, group);
+      this.join(group, otherGroup);
+      otherGroup = group;
+    }
+    return this.stillOpen(group) && this.stillOpen(otherGroup);
+  }
+
+  // queues every cell of the smaller group that has an undecided edge into
+  // the larger one, since a wire there would now close a loop
+  void closeLoops(int smaller, int larger) {
+    int cell = smaller;
+    do {
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        int other = this.neighbor(cell, dir);
+        if (other >= 0 && !this.queued[cell] && this.edges[this.edge(cell, dir)] == UNKNOWN
+            && this.find(other) == larger) {
+          this.queued[cell] = true;
+          this.queue[(this.head + this.queueSize) % this.size] = cell;
+          this.queueSize += 1;
+        }
+      }
+      this.steps += 1;
+      cell = this.next[cell];
+    } while (cell != smaller);
+  }
+
+  // can the given group still be wired to the rest of the board? a group
+  // with a single undecided edge left must be wired through it
+  boolean stillOpen(int group) {
+    if (this.groupSize[group] == this.size) {
+      return true;
+    }
+    else if (this.open[group] == 1) {
+      return this.wireExit(group);
+    }
+    else {
+      return this.open[group] > 0;
+    }
+  }
+
+  // puts a wire on the one undecided edge of the given group
+  boolean wireExit(int group) {
+    int cell = group;
+    do {
+      int rotations = this.domain[cell];
+      int outside = this.outside(cell);
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        int other = this.neighbor(cell, dir);
+        if ((outside & dir) != 0
+            || other >= 0 && this.edges[this.edge(cell, dir)] == UNKNOWN) {
+          return this.restrict(cell, rotations & Solver.withWire(this.base[cell], dir));
+        }
+      }
+      this.steps += 1;
+      cell = this.next[cell];
+    } while (cell != group);
+    return true;
+  }
+
+  // decides every edge of the given cell that its rotations agree on,
+  // returns false if a neighbor is left without rotations
+  boolean process(int cell) {
+    int mask = this.base[cell];
+    int must = Wires.ALL;
+    int may = 0;
+    for (int r = 0; r < 4; r++) {
+      if ((this.domain[cell] & (1 << r)) != 0) {
+        must &= Wires.rotate(mask, r);
+        may |= Wires.rotate(mask, r);
+      }
+    }
+    for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+      int other = this.neighbor(cell, dir);
+      if (other < 0 || this.edges[this.edge(cell, dir)] != UNKNOWN) {
+        continue;
+      }
+      boolean wire;
+      if ((must & dir) != 0) {
+        wire = true;
+      }
+      else if ((may & dir) == 0) {
+        wire = false;
+      }
+      // a wire between two cells of the same group would close a loop
+      else if (this.find(cell) == this.find(other)) {
+        wire = false;
+        this.restrict(cell, this.domain[cell] & ~Solver.withWire(mask, dir));
+      }
+      else {
+        continue;
+      }
+      int facing = Solver.withWire(this.base[other], Wires.opposite(dir));
+      if (!this.decide(cell, dir, other, wire)
+          || !this.restrict(other, this.domain[other] & (wire ? facing : ~facing))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // propagates every narrowed cell until nothing changes, returns false on a
+  // contradiction or once the budget runs out, leaving the queue empty
+  // either way
+  boolean propagate() {
+    boolean ok = true;
+    while (this.queueSize > 0) {
+      int cell = this.queue[this.head];
+      this.head = (this.head + 1) % this.size;
+      this.queueSize -= 1;
+      this.queued[cell] = false;
+      if (ok && this.steps++ >= this.budget) {
+        this.gaveUp = true;
+        ok = false;
+      }
+      else if (ok && !this.process(cell)) {
+        this.failures[cell] += 1;
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  // probes the first count of the given cells until none of them loses any
+  // more rotations, returns false if one is left without rotations
+  boolean probe(int[] cells, int count) {
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int i = 0; i < count; i++) {
+        if (!this.probeCell(cells[i])) {
+          return false;
+        }
+        changed = changed || this.probed;
+      }
+    }
+    return true;
+  }
+
+  // tries every rotation of every undecided cell and drops the ones that
+  // fail right away, until no more can be dropped. returns false if a cell
+  // is left without rotations
+  boolean probe() {
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int cell = 0; cell < this.size; cell++) {
+        if (!this.probeCell(cell)) {
+          return false;
+        }
+        changed = changed || this.probed;
+      }
+    }
+    return true;
+  }
+
+  // probes the cells at the given positions in order, returns false if one
+  // is left without rotations
+  boolean probeAhead(int from, int to) {
+    for (int position = from; position < Math.min(to, this.orderSize); position++) {
+      if (!this.probeCell(this.order[position])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // tries every rotation of the given cell and drops the ones that fail
+  // right away, setting probed if any were dropped. returns false if none
+  // are left
+  boolean probeCell(int cell) {
+    this.probed = false;
+    for (int r = 0; r < 4; r++) {
+      int rotations = this.domain[cell];
+      if (Integer.bitCount(rotations) < 2 || (rotations & (1 << r)) == 0) {
+        continue;
+      }
+      int mark = this.trailSize;
+      boolean works = this.restrict(cell, 1 << r) && this.propagate();
+      this.undo(mark);
+      if (!works) {
+        if (!this.restrict(cell, rotations & ~(1 << r)) || !this.propagate()) {
+          return false;
+        }
+        this.probed = true;
+      }
+    }
+    return true;
+  }
+
+  // is the given cell still undecided?
+  boolean undecided(int cell) {
+    return Integer.bitCount(this.domain[cell]) > 1;
+  }
+
+  // lists the undecided cells patch by patch, each patch in breadth-first
+  // order from its first cell
+  void orderPatches() {
+    boolean[] listed = new boolean[this.size];
+    this.orderSize = 0;
+    for (int first = 0; first < this.size; first++) {
+      if (listed[first] || !this.undecided(first)) {
+        continue;
+      }
+      int next = this.orderSize;
+      this.order[this.orderSize++] = first;
+      listed[first] = true;
+      while (next < this.orderSize) {
+        int cell = this.order[next++];
+        for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+          int other = this.neighbor(cell, dir);
+          if (other >= 0 && !listed[other] && this.undecided(other)) {
+            this.order[this.orderSize++] = other;
+            listed[other] = true;
+          }
+        }
+      }
+    }
+  }
+
+  // the first position in order from the given one whose cell is still
+  // undecided, or -1 if every cell is decided
+  int nextOpen(int from) {
+    for (int position = from; position < this.orderSize; position++) {
+      if (this.undecided(this.order[position])) {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  // the position of the undecided cell to pick next, from the given one on,
+  // which must be undecided. that is the cell whose propagation failed most
+  // often, then the one with the fewest rotations left, then the first
+  int mostConstrained(int from) {
+    int best = from;
+    for (int position = from + 1; position < this.orderSize; position++) {
+      int cell = this.order[position];
+      int other = this.order[best];
+      if (this.undecided(cell) && (this.failures[cell] > this.failures[other]
+          || this.failures[cell] == this.failures[other]
+          && Integer.bitCount(this.domain[cell]) < Integer.bitCount(this.domain[other]))) {
+        best = position;
+      }
+    }
+    this.steps += this.orderSize - from;
+    return best;
+  }
+
+  // records the current rotations as a solution
+  void found() {
+    this.solutions += 1;
+    if (this.solutions == 1) {
+      this.clicks = new int[this.size];
+      this.totalClicks = 0;
+      for (int cell = 0; cell < this.size; cell++) {
+        this.clicks[cell] = Integer.numberOfTrailingZeros(this.domain[cell]);
+        this.totalClicks += this.clicks[cell];
+      }
+    }
+  }
+
+  // narrows every cell as far as propagation and probing go without picking
+  // any rotation, returns false if the rectangle can't be wired
+  boolean narrow() {
+    this.steps = 0;
+    this.gaveUp = false;
+    for (int cell = 0; cell < this.size; cell++) {
+      this.queued[cell] = true;
+      this.queue[cell] = cell;
+    }
+    this.head = 0;
+    this.queueSize = this.size;
+    this.recording = false;
+    boolean ok = this.propagate();
+    this.recording = true;
+    return ok && this.probe();
+  }
+
+  // narrows the whole board starting from the given rotations and edge
+  // states, e.g. those of Solvers that narrowed every tile, so only the
+  // given cells, the ones whose edges the narrowing left undecided, are
+  // propagated and probed again. the groups of the decided wires are joined
+  // first. the rotations must already agree with the decided edges, as a
+  // Solver's do after narrowing. returns false if the board can't be wired
+  boolean narrowFrom(int[] rotations, int[] decided, int[] cells, int count) {
+    this.steps = 0;
+    this.gaveUp = false;
+    this.recording = false;
+    boolean ok = true;
+    for (int cell = 0; cell < this.size && ok; cell++) {
+      this.domain[cell] &= rotations[cell];
+      ok = this.domain[cell] != 0;
+    }
+    System.arraycopy(decided, 0, this.edges, 0, this.edges.length);
+    for (int cell = 0; cell < this.size; cell++) {
+      for (int dir = Wires.RIGHT; dir <= Wires.BOTTOM; dir <<= 1) {
+        int other = this.neighbor(cell, dir);
+        if (other >= 0 && this.edges[this.edge(cell, dir)] != UNKNOWN) {
+          this.open[cell] -= 1;
+          this.open[other] -= 1;
+        }
+      }
+    }
+    for (int cell = 0; cell < this.size && ok; cell++) {
+      for (int dir = Wires.RIGHT; dir <= Wires.BOTTOM && ok; dir <<= 1) {
+        int other = this.neighbor(cell, dir);
+        if (other >= 0 && this.edges[this.edge(cell, dir)] == WIRE) {
+          int group = this.find(cell);
+          int otherGroup = this.find(other);
+          ok = group != otherGroup;
+          if (ok) {
+            this.join(group, otherGroup);
+          }
+        }
+      }
+    }
+    for (int cell = 0; cell < this.size && ok; cell++) {
+      ok = this.parent[cell] != cell || this.stillOpen(cell);
+    }
+    for (int i = 0; i < count && ok; i++) {
+      if (!this.queued[cells[i]]) {
+        this.queued[cells[i]] = true;
+        this.queue[(this.head + this.queueSize) % this.size] = cells[i];
+        this.queueSize += 1;
+      }
+    }
+    ok = this.propagate() && ok;
+    this.recording = true;
+    return ok && this.probe(cells, count);
+  }
+
+  // joins two different groups of cells under the larger one, without
+  // checking whether they are still open
+  void join(int group, int otherGroup) {
+    int larger = this.groupSize[group] < this.groupSize[otherGroup] ? otherGroup : group;
+    int smaller = larger == group ? otherGroup : group;
+    int ring = this.next[larger];
+    this.set(NEXT, larger, this.next[smaller]);
+    this.set(NEXT, smaller, ring);
+    this.set(PARENT, smaller, larger);
+    this.set(SIZE, larger, this.groupSize[larger] + this.groupSize[smaller]);
+    this.set(OPEN, larger, this.open[larger] + this.open[smaller]);
+  }
+
+  // searches for solutions until the given number is found, there are no
+  // more or the budget runs out, returns how many were found. rotations
+  // with fewer clicks are tried first, and the first solution found is kept
+  // in clicks and totalClicks. a limit of 2 also tells whether the solution
+  // is unique, and so whether those clicks are the fewest
+  int solve(int limit) {
+    return this.search(limit, this.narrow());
+  }
+
+  // searches for solutions from the rotations narrowed so far, see solve,
+  // failing right away unless the narrowing was ok. the budget counts on
+  // from the narrowing
+  int search(int limit, boolean ok) {
+    this.solutions = 0;
+    this.decisions = 0;
+    int start = this.trailSize;
+    this.orderPatches();
+    int depth = 0;
+    while (true) {
+      if (this.gaveUp) {
+        this.undo(start);
+        return this.solutions;
+      }
+      if (ok) {
+        int first = this.nextOpen(depth == 0 ? 0 : this.starts[depth - 1]);
+        if (first >= 0) {
+          int position = this.mostConstrained(first);
+          int cell = this.order[position];
+          int rotation = Integer.numberOfTrailingZeros(this.domain[cell]);
+          this.starts[depth] = first;
+          this.picks[depth] = position;
+          this.marks[depth] = this.trailSize;
+          this.chosen[depth] = rotation;
+          depth += 1;
+          this.decisions += 1;
+          ok = this.restrict(cell, 1 << rotation) && this.propagate()
+              && this.probeAhead(first, first + LOOKAHEAD);
+          continue;
+        }
+        this.found();
+        if (this.solutions >= limit) {
+          this.undo(start);
+          return this.solutions;
+        }
+      }
+      if (depth == 0) {
+        this.undo(start);
+        return this.solutions;
+      }
+      depth -= 1;
+      this.undo(this.marks[depth]);
+      int cell = this.order[this.picks[depth]];
+      ok = this.restrict(cell, this.domain[cell] & ~(1 << this.chosen[depth]))
+          && this.propagate()
+          && this.probeAhead(this.starts[depth], this.starts[depth] + LOOKAHEAD);
+    }
+  }
+
+  // rotates every cell of the given board by its clicks in the first solution
+  void apply(Board board) {
+    for (int cell = 0; cell < this.size; cell++) {
+      for (int i = 0; i < this.clicks[cell]; i++) {
+        board.rotate(cell);
+      }
+    }
+  }
+}
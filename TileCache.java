@@ -0,0 +1,101 @@
+import java.awt.Color;
+import java.util.HashMap;
+import javalib.worldimages.*;
+
+// the images of board cells, keyed by wire mask, powered and station flags
+// and cell size, i.e., at most 16 x 2 x 2 tiles per size are ever drawn and
+// every frame after the first reuses them
+class TileCache {
+  // the number of shades between an unpowered and a fully powered block
+  static final int SHADES = 8;
+
+  // the tiles of each cell size, indexed by wires | POWERED | STATION
+  HashMap<Integer, WorldImage[]> tiles;
+  // the blocks of each size, indexed by shade, with the station block last
+  HashMap<Integer, WorldImage[]> blocks;
+  // the number of tiles drawn so far
+  int drawn;
+
+  // constructor
+  TileCache() {
+    this.tiles = new HashMap<Integer, WorldImage[]>();
+    this.blocks = new HashMap<Integer, WorldImage[]>();
+    this.drawn = 0;
+  }
+
+  // the tile for a cell with the given wires and flags
+  WorldImage tile(int mask, boolean powered, boolean station, int sizeOfCell) {
+    WorldImage[] forSize = this.tiles.get(sizeOfCell);
+    if (forSize == null) {
+      forSize = new WorldImage[(Wires.ALL | PackedBoard.POWERED | PackedBoard.STATION) + 1];
+      this.tiles.put(sizeOfCell, forSize);
+    }
+    int key = mask | (powered ? PackedBoard.POWERED : 0) | (station ? PackedBoard.STATION : 0);
+    if (forSize[key] == null) {
+      forSize[key] = TileCache.draw(mask, powered, station, sizeOfCell);
+      this.drawn += 1;
+    }
+    return forSize[key];
+  }
+
+  // the tile for a block of cells when zoomed out, shaded from gray to orange
+  // by how many of its cells are powered, or blue if it holds the station
+  WorldImage block(int powered, int cells, boolean station, int sizeOfCell) {
+    WorldImage[] forSize = this.blocks.get(sizeOfCell);
+    if (forSize == null) {
+      forSize = new WorldImage[SHADES + 2];
+      this.blocks.put(sizeOfCell, forSize);
+    }
+    int key = station ? SHADES + 1 : powered * SHADES / cells;
+    if (forSize[key] == null) {
+      Color color = Color.BLUE;
+      if (!station) {
+        color = TileCache.shade(key);
+      }
+      forSize[key] = new RectangleImage(sizeOfCell, sizeOfCell, OutlineMode.SOLID, color);
+      this.drawn += 1;
+    }
+    return forSize[key];
+  }
+
+  // the color of a block with the given shade, from light gray to orange
+  static Color shade(int shade) {
+    Color off = Color.LIGHT_GRAY;
+    Color on = Color.ORANGE;
+    return new Color(
+        off.getRed() + (on.getRed() - off.getRed()) * shade / SHADES,
+        off.getGreen() + (on.getGreen() - off.getGreen()) * shade / SHADES,
+        off.getBlue() + (on.getBlue() - off.getBlue()) * shade / SHADES);
+  }
+
+  // draws a cell with the given wires and flags
+  static WorldImage draw(int mask, boolean powered, boolean station, int sizeOfCell) {
+    WorldImage answer = new RectangleImage(sizeOfCell - 1, sizeOfCell - 1, OutlineMode.SOLID,
+        Color.DARK_GRAY);
+    Color colorForPiece = Color.LIGHT_GRAY;
+    if (powered) {
+      colorForPiece = Color.ORANGE;
+    }
+    if ((mask & Wires.LEFT) != 0) {
+      answer = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE,
+          new RectangleImage(sizeOfCell / 2, 5, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
+    }
+    if ((mask & Wires.RIGHT) != 0) {
+      answer = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE,
+          new RectangleImage(sizeOfCell / 2, 5, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
+    }
+    if ((mask & Wires.TOP) != 0) {
+      answer = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP,
+          new RectangleImage(5, sizeOfCell / 2, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
+    }
+    if ((mask & Wires.BOTTOM) != 0) {
+      answer = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM,
+          new RectangleImage(5, sizeOfCell / 2, OutlineMode.SOLID, colorForPiece), 0, 0, answer);
+    }
+    if (station) {
+      answer = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.MIDDLE,
+          new StarImage(sizeOfCell / 2, 7, OutlineMode.SOLID, Color.BLUE), 0, 0, answer);
+    }
+    return answer;
+  }
+}
@@ -0,0 +1,451 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+// the most recently used tile mappings of a TiledBoard, dropping the least
+// recently used one once there are more than the capacity. java can't unmap
+// a mapping it dropped, that waits until the mapping is collected, but its
+// cells are written out first, so the system may reclaim its pages
+class TileLru extends LinkedHashMap<Integer, MappedByteBuffer> {
+  private static final long serialVersionUID = 1L;
+
+  int capacity;
+
+  // constructor
+  TileLru(int capacity) {
+    super(16, 0.75f, true);
+    this.capacity = capacity;
+  }
+
+  // drops the eldest mapping once over capacity, writing its cells out to
+  // the file first so no change waits on the mapping being collected
+  protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+    if (this.size() <= this.capacity) {
+      return false;
+    }
+    eldest.getValue().force();
+    return true;
+  }
+}
+
+// a board kept in a file instead of the heap, i.e., the cells are cut into
+// square tiles and every tile is a block of the file, one byte per cell laid
+// out like PackedBoard. the board only holds the mappings of the tiles in a
+// bounded LRU, so a board can be far bigger than the heap while its player
+// only touches the tiles in view. generate streams a board out tile by tile, so it never
+// holds more than one tile either. a GameEngine plays it through a
+// TiledFlood, which keeps nothing per cell on the heap
+class TiledBoard implements Board {
+  static final int MAGIC = 0x4C454154;
+  static final int HEADER = 4 * 4 + 8;
+
+  int width;
+  int height;
+  int tileSize;
+  int tilesAcross;
+  int tilesDown;
+  long seed;
+  FileChannel channel;
+  TileLru resident;
+  // the last tile used, so runs of cells in one tile skip the LRU
+  int lastTile;
+  MappedByteBuffer last;
+  // the number of tiles mapped from the file so far
+  long loads;
+  // the number of powered cells, overall and in every tile
+  long poweredCount;
+  int[] poweredInTile;
+
+  // constructor, for the board in the given open file
+  TiledBoard(FileChannel channel, int width, int height, int tileSize, long seed, int cached) {
+    if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE
+        || tileSize < 1 || cached < 1) {
+      throw new IllegalArgumentException("Can't tile a " + width + "x" + height + " board into "
+          + tileSize + "x" + tileSize + " tiles keeping " + cached);
+    }
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.tilesDown = (height + tileSize - 1) / tileSize;
+    this.seed = seed;
+    this.channel = channel;
+    this.resident = new TileLru(cached);
+    this.lastTile = -1;
+    this.poweredInTile = new int[this.tilesAcross * this.tilesDown];
+  }
+
+  // the size in bytes of the file of the given board
+  static long sizeFor(int width, int height, int tileSize) {
+    long tiles = (long) ((width + tileSize - 1) / tileSize) * ((height + tileSize - 1) / tileSize);
+    return HEADER + tiles * tileSize * tileSize;
+  }
+
+  // generates a width x height board into the given file from the given
+  // seed, one tile at a time, shuffling about the given percent of its cells.
+  // every tile is wired into a tree by the given generator and the tiles are
+  // joined by kruskal over a grid of tiles, one wire across the border of
+  // every pair it joins, so the whole board is a single spanning tree
+  static TiledBoard generate(Path path, int width, int height, int tileSize, long seed,
+      int percent, MazeGenerator maze, int cached) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      TiledBoard board = new TiledBoard(channel, width, height, tileSize, seed, cached);
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      header.putInt(MAGIC).putInt(width).putInt(height).putInt(tileSize).putLong(seed).flip();
+      channel.write(header, 0);
+      channel.write(ByteBuffer.allocate(1), TiledBoard.sizeFor(width, height, tileSize) - 1);
+      SeedStreams streams = new SeedStreams(seed);
+      int tiles = board.tilesAcross * board.tilesDown;
+      // the row or column where the wire to the tile to the right or below
+      // crosses the border, -1 if there is none
+      int[] crossRight = new int[tiles];
+      int[] crossDown = new int[tiles];
+      Arrays.fill(crossRight, -1);
+      Arrays.fill(crossDown, -1);
+      GridEdges borders = new GridEdges(board.tilesAcross, board.tilesDown, streams.maze);
+      UnionFind joined = new UnionFind(tiles);
+      for (int edge : borders.byWeight()) {
+        int from = borders.from[edge];
+        if (joined.union(from, borders.to[edge])) {
+          if (board.tilesAcross > 1 && borders.to[edge] == from + 1) {
+            crossRight[from] = streams.maze.nextInt(board.tileRows(from));
+          }
+          else {
+            crossDown[from] = streams.maze.nextInt(board.tileCols(from));
+          }
+        }
+      }
+      for (int tile = 0; tile < tiles; tile++) {
+        board.streamTile(tile, streams.maze.split(), streams.shuffle.split(), percent, maze,
+            crossRight, crossDown);
+      }
+      board.setStation(0, true);
+      return board;
+    }
+    catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // wires the given tile into a tree with the wires crossing its borders,
+  // shuffles it and writes it to the file
+  void streamTile(int tile, RandomGenerator wiring, RandomGenerator shuffle, int percent,
+      MazeGenerator maze, int[] crossRight, int[] crossDown) {
+    int rows = this.tileRows(tile);
+    int cols = this.tileCols(tile);
+    PackedBoard local = new PackedBoard(cols, rows);
+    maze.generate(local, wiring);
+    if (crossRight[tile] >= 0) {
+      local.setWires(local.index(crossRight[tile], cols - 1),
+          local.wires(local.index(crossRight[tile], cols - 1)) | Wires.RIGHT);
+    }
+    if (tile % this.tilesAcross > 0 && crossRight[tile - 1] >= 0) {
+      local.setWires(local.index(crossRight[tile - 1], 0),
+          local.wires(local.index(crossRight[tile - 1], 0)) | Wires.LEFT);
+    }
+    if (crossDown[tile] >= 0) {
+      local.setWires(local.index(rows - 1, crossDown[tile]),
+          local.wires(local.index(rows - 1, crossDown[tile])) | Wires.BOTTOM);
+    }
+    if (tile >= this.tilesAcross && crossDown[tile - this.tilesAcross] >= 0) {
+      local.setWires(local.index(0, crossDown[tile - this.tilesAcross]),
+          local.wires(local.index(0, crossDown[tile - this.tilesAcross])) | Wires.TOP);
+    }
+    MappedByteBuffer cells = this.tile(tile);
+    for (int cell = 0; cell < local.size(); cell++) {
+      int mask = local.wires(cell);
+      if (percent >= 100 || shuffle.nextInt(100) < percent) {
+        mask = Wires.rotate(mask, shuffle.nextInt(4));
+      }
+      cells.put(local.row(cell) * this.tileSize + local.col(cell), (byte) mask);
+    }
+  }
+
+  // opens the board saved in the given file
+  static TiledBoard open(Path path, int cached) throws IOException {
+    return TiledBoard.read(path, FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE), cached);
+  }
+
+  // the board saved in the file at the given path, open on the given
+  // channel, which is closed if it doesn't hold a board
+  static TiledBoard read(Path path, FileChannel channel, int cached) throws IOException {
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      channel.read(header, 0);
+      header.flip();
+      if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+        throw new IOException(path + " is not a tiled board");
+      }
+      int width = header.getInt();
+      int height = header.getInt();
+      int tileSize = header.getInt();
+      long seed = header.getLong();
+      if (width < 1 || height < 1 || tileSize < 1
+          || channel.size() != TiledBoard.sizeFor(width, height, tileSize)) {
+        throw new IOException(path + " has " + channel.size() + " bytes, which doesn't fit a "
+            + width + "x" + height + " board of " + tileSize + "x" + tileSize + " tiles");
+      }
+      TiledBoard board = new TiledBoard(channel, width, height, tileSize, seed, cached);
+      for (int tile = 0; tile < board.poweredInTile.length; tile++) {
+        MappedByteBuffer cells = board.tile(tile);
+        for (int i = 0; i < tileSize * tileSize; i++) {
+          if ((cells.get(i) & PackedBoard.POWERED) != 0) {
+            board.poweredInTile[tile] += 1;
+          }
+        }
+        board.poweredCount += board.poweredInTile[tile];
+      }
+      return board;
+    }
+    catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // the number of rows of the given tile
+  int tileRows(int tile) {
+    return Math.min(this.tileSize, this.height - tile / this.tilesAcross * this.tileSize);
+  }
+
+  // the number of columns of the given tile
+  int tileCols(int tile) {
+    return Math.min(this.tileSize, this.width - tile % this.tilesAcross * this.tileSize);
+  }
+
+  // the cells of the given tile, mapping it if it isn't resident
+  MappedByteBuffer tile(int tile) {
+    if (tile == this.lastTile) {
+      return this.last;
+    }
+    MappedByteBuffer cells = this.resident.get(tile);
+    if (cells == null) {
+      try {
+        long area = (long) this.tileSize * this.tileSize;
+        cells = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER + tile * area, area);
+      }
+      catch (IOException e) {
+        throw new IllegalStateException("Can't map tile " + tile, e);
+      }
+      this.resident.put(tile, cells);
+      this.loads += 1;
+    }
+    this.lastTile = tile;
+    this.last = cells;
+    return cells;
+  }
+
+  // the cell at the given position within the given tile, or -1 if that
+  // position is past the edge of the board
+  int cellAt(int tile, int offset) {
+    int row = tile / this.tilesAcross * this.tileSize + offset / this.tileSize;
+    int col = tile % this.tilesAcross * this.tileSize + offset % this.tileSize;
+    return row < this.height && col < this.width ? row * this.width + col : -1;
+  }
+
+  // the tile holding the given cell
+  int tileOf(int cell) {
+    return cell / this.width / this.tileSize * this.tilesAcross
+        + cell % this.width / this.tileSize;
+  }
+
+  // the position of the given cell within its tile
+  int offsetOf(int cell) {
+    return cell / this.width % this.tileSize * this.tileSize + cell % this.width % this.tileSize;
+  }
+
+  // the byte of the given cell
+  int cell(int cell) {
+    return this.tile(this.tileOf(cell)).get(this.offsetOf(cell));
+  }
+
+  // replaces the byte of the given cell
+  void setCell(int cell, int value) {
+    this.tile(this.tileOf(cell)).put(this.offsetOf(cell), (byte) value);
+  }
+
+  // the number of columns
+  public int width() {
+    return this.width;
+  }
+
+  // the number of rows
+  public int height() {
+    return this.height;
+  }
+
+  // the wire mask of the given cell
+  public int wires(int cell) {
+    return this.cell(cell) & Wires.ALL;
+  }
+
+  // replaces the wire mask of the given cell
+  public void setWires(int cell, int mask) {
+    this.setCell(cell, (this.cell(cell) & ~Wires.ALL) | (mask & Wires.ALL));
+  }
+
+  // is the given cell powered?
+  public boolean powered(int cell) {
+    return (this.cell(cell) & PackedBoard.POWERED) != 0;
+  }
+
+  // sets whether the given cell is powered, keeping the counts up to date
+  public void setPowered(int cell, boolean on) {
+    if (on != this.powered(cell)) {
+      int change = on ? 1 : -1;
+      this.poweredCount += change;
+      this.poweredInTile[this.tileOf(cell)] += change;
+      this.setCell(cell, this.cell(cell) ^ PackedBoard.POWERED);
+    }
+  }
+
+  // is the power station on the given cell?
+  public boolean station(int cell) {
+    return (this.cell(cell) & PackedBoard.STATION) != 0;
+  }
+
+  // sets whether the power station is on the given cell
+  public void setStation(int cell, boolean on) {
+    int value = this.cell(cell);
+    this.setCell(cell, on ? value | PackedBoard.STATION : value & ~PackedBoard.STATION);
+  }
+
+  // only the power radius, since measuring the tree would keep a distance
+  // for every cell on the heap
+  public TreeMetrics measure() {
+    return new TreeMetrics(this.width, this.height);
+  }
+
+  // a flood lighting this board's powered flags in place
+  public TiledFlood flood() {
+    return new TiledFlood(this);
+  }
+
+  // a copy of this board in a temporary file, which is deleted once the
+  // copy is closed, keeping as many tiles mapped as this board does
+  public TiledBoard copy() {
+    try {
+      Path path = Files.createTempFile("tiled", ".lea");
+      FileChannel copied = FileChannel.open(path, StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+      try {
+        for (MappedByteBuffer cells : this.resident.values()) {
+          cells.force();
+        }
+        long size = this.channel.size();
+        long at = 0;
+        while (at < size) {
+          at += this.channel.transferTo(at, size - at, copied);
+        }
+      }
+      catch (IOException | RuntimeException e) {
+        copied.close();
+        throw e;
+      }
+      TiledBoard board = TiledBoard.read(path, copied, this.resident.capacity);
+      board.clearPowered();
+      return board;
+    }
+    catch (IOException e) {
+      throw new IllegalStateException("Can't copy the tiled board", e);
+    }
+  }
+
+  // clears the powered flag of every cell, only visiting tiles with
+  // powered cells
+  void clearPowered() {
+    for (int tile = 0; tile < this.poweredInTile.length; tile++) {
+      if (this.poweredInTile[tile] > 0) {
+        MappedByteBuffer cells = this.tile(tile);
+        for (int i = 0; i < this.tileSize * this.tileSize; i++) {
+          cells.put(i, (byte) (cells.get(i) & ~PackedBoard.POWERED));
+        }
+        this.poweredInTile[tile] = 0;
+      }
+    }
+    this.poweredCount = 0;
+  }
+
+  // powers the given cell and every cell connected to it at most radius
+  // steps away, one ring of cells at a time, using the powered flags as the
+  // visited set, so only the outermost ring is ever held, in one of two
+  // buffers that swap at every ring. every ring is walked tile by tile. the
+  // board should have no powered cells. returns the number of powered cells
+  long lightUp(int start, int radius) {
+    this.setPowered(start, true);
+    int[] ring = new int[16];
+    int[] next = new int[16];
+    long[] keys = new long[16];
+    ring[0] = start;
+    int ringSize = 1;
+    for (int depth = 0; depth < radius && ringSize > 0; depth++) {
+      int nextSize = 0;
+      for (int i = 0; i < ringSize; i++) {
+        int cell = ring[i];
+        for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+          if (this.linked(cell, dir)) {
+            int other = this.neighbor(cell, dir);
+            if (!this.powered(other)) {
+              this.setPowered(other, true);
+              if (nextSize == next.length) {
+                next = Arrays.copyOf(next, 2 * nextSize);
+              }
+              next[nextSize++] = other;
+            }
+          }
+        }
+      }
+      if (keys.length < nextSize) {
+        keys = new long[next.length];
+      }
+      this.byTile(next, nextSize, keys);
+      int[] swap = ring;
+      ring = next;
+      next = swap;
+      ringSize = nextSize;
+    }
+    return this.poweredCount;
+  }
+
+  // sorts the first size cells of the given array by the tile holding
+  // them, so a ring visits every tile once instead of cycling through more
+  // tiles than stay resident. keys must hold at least size longs
+  int[] byTile(int[] cells, int size, long[] keys) {
+    for (int i = 0; i < size; i++) {
+      keys[i] = (long) this.tileOf(cells[i]) << 32 | cells[i];
+    }
+    Arrays.sort(keys, 0, size);
+    for (int i = 0; i < size; i++) {
+      cells[i] = (int) keys[i];
+    }
+    return cells;
+  }
+
+  // checks if every cell on the board is powered
+  boolean didWin() {
+    return this.poweredCount == this.size();
+  }
+
+  // writes every change out to the file and closes it
+  void close() throws IOException {
+    for (MappedByteBuffer cells : this.resident.values()) {
+      cells.force();
+    }
+    this.resident.clear();
+    this.last = null;
+    this.lastTile = -1;
+    this.channel.close();
+  }
+}
@@ -0,0 +1,100 @@
+// the Flood of a TiledBoard, which keeps no cells of its own, i.e., the
+// board's powered flags are the lit set and TiledBoard.lightUp only holds
+// the outer ring of the flood, so a run clears the board's power and lights
+// it up again. that costs O(cells in tiles lit before + cells lit after)
+class TiledFlood implements Flood {
+  TiledBoard board;
+  // the number of cells lit by the last run
+  int count;
+  // where cell last stopped, the index of the next lit cell and the tile
+  // and position within it to read it from, so listing the lit cells in
+  // order reads every tile with any once
+  int nextIndex;
+  int tile;
+  int offset;
+
+  // constructor
+  TiledFlood(TiledBoard board) {
+    this.board = board;
+  }
+
+  // unpowers the board, which must be the given graph, and powers the source
+  // and every cell connected to it at most radius steps away, returns how
+  // many cells are lit
+  public int run(CellGraph graph, int source, int radius) {
+    if (graph != this.board) {
+      throw new IllegalArgumentException("A tiled flood only runs on its own board");
+    }
+    this.board.clearPowered();
+    this.count = (int) this.board.lightUp(source, radius);
+    this.nextIndex = 0;
+    this.tile = 0;
+    this.offset = 0;
+    return this.count;
+  }
+
+  // runs on the board, whose powered flags the run sets itself
+  public int power(Board board, int source, int radius) {
+    return this.run(board, source, radius);
+  }
+
+  // the number of cells lit by the last run
+  public int count() {
+    return this.count;
+  }
+
+  // the i-th cell lit by the last run, counting tile by tile and row by row
+  // within a tile, found from the board's powered flags. tiles with fewer
+  // lit cells than are left to skip are skipped whole
+  public int cell(int i) {
+    if (i < 0 || i >= this.count) {
+      throw new IndexOutOfBoundsException("The last run lit " + this.count + " cells, not "
+          + (i + 1));
+    }
+    if (i < this.nextIndex) {
+      this.nextIndex = 0;
+      this.tile = 0;
+      this.offset = 0;
+    }
+    int area = this.board.tileSize * this.board.tileSize;
+    while (true) {
+      if (this.offset == 0 && this.nextIndex + this.board.poweredInTile[this.tile] <= i) {
+        this.nextIndex += this.board.poweredInTile[this.tile];
+        this.tile += 1;
+        continue;
+      }
+      boolean lit = (this.board.tile(this.tile).get(this.offset) & PackedBoard.POWERED) != 0;
+      int cell = this.board.cellAt(this.tile, this.offset);
+      this.offset += 1;
+      if (this.offset == area) {
+        this.offset = 0;
+        this.tile += 1;
+      }
+      if (lit) {
+        this.nextIndex += 1;
+        if (this.nextIndex > i) {
+          return cell;
+        }
+      }
+    }
+  }
+
+  // was the given cell lit by the last run?
+  public boolean lit(int cell) {
+    return this.board.powered(cell);
+  }
+
+  // checks if all of the first size cells were lit by the last run, for the
+  // whole board by its count of powered cells
+  public boolean allLit(int size) {
+    if (size == this.board.size()) {
+      return this.board.poweredCount == size;
+    }
+    for (int cell = 0; cell < size; cell++) {
+      if (!this.board.powered(cell)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
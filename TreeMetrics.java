@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+// the reach of the power station and the shape of a board's spanning tree,
+// i.e., the radius power spreads over the grid of cells, which only depends
+// on the board's width and height, and the diameter, center and every cell's
+// distance from the center along the wires of the solved tree. none of these
+// depend on rotations, so they are measured once when a board is generated
+class TreeMetrics {
+  // how many grid steps power spreads from the station
+  int radius;
+  // the longest path along the wires, the cell halfway along it and every
+  // cell's distance from that cell along the wires, -1 for cells the wires
+  // don't reach. diameter and center are -1 and centerDistance is null if
+  // the tree wasn't measured
+  int diameter;
+  int center;
+  IntBuffer centerDistance;
+
+  // constructor, measures the tree wired on the given board, which should be
+  // solved, keeping the distances on the heap
+  TreeMetrics(Board solved) {
+    this(solved, IntBuffer.allocate(solved.size()));
+  }
+
+  // constructor, measures the tree wired on the given board into the given
+  // buffer of distances, with two sweeps along the wires to find the ends
+  // of the longest path and a third from the cell halfway between them
+  TreeMetrics(Board solved, IntBuffer centerDistance) {
+    this(solved.width(), solved.height());
+    int[] queue = new int[solved.size()];
+    int near = TreeMetrics.sweep(solved, 0, queue, centerDistance);
+    int far = TreeMetrics.sweep(solved, near, queue, centerDistance);
+    this.diameter = centerDistance.get(far);
+    // walk back from the far end towards the near one until halfway
+    int cell = far;
+    while (centerDistance.get(cell) > this.diameter / 2) {
+      int step = cell;
+      for (int dir = Wires.TOP; dir <= Wires.LEFT && step == cell; dir <<= 1) {
+        int next = solved.neighbor(cell, dir);
+        if (solved.linked(cell, dir)
+            && centerDistance.get(next) == centerDistance.get(cell) - 1) {
+          step = next;
+        }
+      }
+      cell = step;
+    }
+    this.center = cell;
+    TreeMetrics.sweep(solved, this.center, queue, centerDistance);
+    this.centerDistance = centerDistance;
+  }
+
+  // constructor, for a width x height board whose tree isn't measured
+  TreeMetrics(int width, int height) {
+    this.radius = (width + height) / 2;
+    this.diameter = -1;
+    this.center = -1;
+  }
+
+  // searches the wires of the board from the given cell, leaving every
+  // cell's distance from it in dist, -1 where the wires don't reach, and
+  // returns the cell reached last
+  static int sweep(Board board, int source, int[] queue, IntBuffer dist) {
+    for (int cell = 0; cell < board.size(); cell++) {
+      dist.put(cell, -1);
+    }
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = source;
+    dist.put(source, 0);
+    while (head < tail) {
+      int cell = queue[head++];
+      for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+        if (board.linked(cell, dir)) {
+          int next = board.neighbor(cell, dir);
+          if (dist.get(next) < 0) {
+            dist.put(next, dist.get(cell) + 1);
+            queue[tail++] = next;
+          }
+        }
+      }
+    }
+    return queue[tail - 1];
+  }
+
+  // a buffer of the given number of distances outside the java heap
+  static IntBuffer direct(int size) {
+    return ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  // the distance of the given cell from the center along the wires
+  int centerDistance(int cell) {
+    return this.centerDistance.get(cell);
+  }
+
+  // the same metrics with the distances copied outside the java heap
+  TreeMetrics offHeap() {
+    if (this.centerDistance == null || this.centerDistance.isDirect()) {
+      return this;
+    }
+    TreeMetrics moved = new TreeMetrics(0, 0);
+    moved.radius = this.radius;
+    moved.diameter = this.diameter;
+    moved.center = this.center;
+    moved.centerDistance = TreeMetrics.direct(this.centerDistance.capacity())
+        .put(0, this.centerDistance, 0, this.centerDistance.capacity());
+    return moved;
+  }
+}
@@ -0,0 +1,56 @@
+// a disjoint-set forest over the cell indices 0 .. size - 1,
+// using union by rank and path compression so every operation is
+// effectively constant time and never recurses
+class UnionFind {
+  int[] parent;
+  byte[] rank;
+  // the number of disjoint sets left
+  int components;
+
+  // constructor, every cell starts out as its own representative
+  UnionFind(int size) {
+    this.parent = new int[size];
+    this.rank = new byte[size];
+    this.components = size;
+    for (int i = 0; i < size; i++) {
+      this.parent[i] = i;
+    }
+  }
+
+  // finds the representative of the given cell, halving the path on the way
+  int find(int cell) {
+    int current = cell;
+    while (this.parent[current] != current) {
+      this.parent[current] = this.parent[this.parent[current]];
+      current = this.parent[current];
+    }
+    return current;
+  }
+
+  // merges the sets of the two given cells,
+  // returns false if they were already in the same set
+  boolean union(int a, int b) {
+    int rootA = this.find(a);
+    int rootB = this.find(b);
+    if (rootA == rootB) {
+      return false;
+    }
+    if (this.rank[rootA] < this.rank[rootB]) {
+      this.parent[rootA] = rootB;
+    }
+    else if (this.rank[rootA] > this.rank[rootB]) {
+      this.parent[rootB] = rootA;
+    }
+    else {
+      this.parent[rootB] = rootA;
+      this.rank[rootA] += 1;
+    }
+    this.components -= 1;
+    return true;
+  }
+
+  // are the two given cells in the same set?
+  boolean connected(int a, int b) {
+    return this.find(a) == this.find(b);
+  }
+}
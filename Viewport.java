@@ -0,0 +1,202 @@
+// the part of a board shown in a window, i.e., the first visible row and
+// column and how many pixels each cell gets. past MIN_CELL pixels per cell,
+// zooming out groups cells into block x block squares drawn as one tile,
+// so a frame never holds more tiles than fit in the window
+class Viewport {
+  // the smallest tile still drawn with its wires
+  static final int MIN_CELL = 8;
+  // the largest tile zooming in goes to
+  static final int MAX_CELL = 200;
+
+  // the board size in cells
+  int boardWidth;
+  int boardHeight;
+  // the window size in pixels
+  int windowWidth;
+  int windowHeight;
+  // the pixels per tile, and the cells per side of a tile
+  int cellSize;
+  int block;
+  // the sizes zooming out halved, most recent last, so zooming back in
+  // restores them exactly even when halving rounded down
+  int[] halved;
+  int halvings;
+  // the first visible row and column
+  int top;
+  int left;
+  // counts the changes to the view, so scenes can tell when to redraw
+  int version;
+
+  // constructor, shows the top left corner of the board with one cell per tile
+  Viewport(int boardWidth, int boardHeight, int windowWidth, int windowHeight, int cellSize) {
+    if (boardWidth < 1 || boardHeight < 1 || windowWidth < 1 || windowHeight < 1
+        || cellSize < 1) {
+      throw new IllegalArgumentException("Viewport sizes must be positive");
+    }
+    this.boardWidth = boardWidth;
+    this.boardHeight = boardHeight;
+    this.windowWidth = windowWidth;
+    this.windowHeight = windowHeight;
+    this.cellSize = cellSize;
+    this.block = 1;
+    this.halved = new int[Integer.SIZE];
+    this.halvings = 0;
+    this.top = 0;
+    this.left = 0;
+    this.version = 0;
+  }
+
+  // the number of tiles across the window, counting a partly visible one
+  int tilesAcross() {
+    return (this.windowWidth + this.cellSize - 1) / this.cellSize;
+  }
+
+  // the number of tiles down the window, counting a partly visible one
+  int tilesDown() {
+    return (this.windowHeight + this.cellSize - 1) / this.cellSize;
+  }
+
+  // the column after the last visible one
+  int right() {
+    return Math.min(this.boardWidth, this.left + this.tilesAcross() * this.block);
+  }
+
+  // the row after the last visible one
+  int bottom() {
+    return Math.min(this.boardHeight, this.top + this.tilesDown() * this.block);
+  }
+
+  // whether every cell of the board is visible
+  boolean showsAll() {
+    return this.top == 0 && this.left == 0
+        && this.right() == this.boardWidth && this.bottom() == this.boardHeight;
+  }
+
+  // keeps the view on the board, starting on a whole block
+  void clamp() {
+    this.top = Math.max(0, Math.min(this.top, this.boardHeight - this.tilesDown() * this.block));
+    this.left = Math.max(0, Math.min(this.left, this.boardWidth - this.tilesAcross() * this.block));
+    this.top -= this.top % this.block;
+    this.left -= this.left % this.block;
+  }
+
+  // doubles the size of each cell, or gives back the size zooming out
+  // halved, returns whether the view changed
+  boolean zoomIn() {
+    if (this.block > 1) {
+      this.block /= 2;
+    }
+    else if (this.halvings > 0) {
+      this.halvings -= 1;
+      this.cellSize = this.halved[this.halvings];
+    }
+    else if (this.cellSize * 2 <= MAX_CELL) {
+      this.cellSize *= 2;
+    }
+    else {
+      return false;
+    }
+    this.clamp();
+    this.version += 1;
+    return true;
+  }
+
+  // halves the size of each cell, returns whether the view changed,
+  // which it doesn't once the whole board is visible
+  boolean zoomOut() {
+    if (this.showsAll()) {
+      return false;
+    }
+    else if (this.block == 1 && this.cellSize / 2 >= MIN_CELL) {
+      this.halved[this.halvings] = this.cellSize;
+      this.halvings += 1;
+      this.cellSize /= 2;
+    }
+    else {
+      this.block *= 2;
+    }
+    this.clamp();
+    this.version += 1;
+    return true;
+  }
+
+  // zooms out until the whole board is visible
+  void fit() {
+    this.top = 0;
+    this.left = 0;
+    while (this.zoomOut()) {
+      // keep zooming
+    }
+    this.version += 1;
+  }
+
+  // moves the view a quarter window in the given direction,
+  // returns whether the view changed
+  boolean pan(int dir) {
+    int rows = Math.max(1, this.tilesDown() / 4) * this.block;
+    int cols = Math.max(1, this.tilesAcross() / 4) * this.block;
+    int oldTop = this.top;
+    int oldLeft = this.left;
+    switch (dir) {
+      case Wires.TOP:
+        this.top -= rows;
+        break;
+      case Wires.RIGHT:
+        this.left += cols;
+        break;
+      case Wires.BOTTOM:
+        this.top += rows;
+        break;
+      case Wires.LEFT:
+        this.left -= cols;
+        break;
+      default:
+        return false;
+    }
+    this.clamp();
+    if (this.top == oldTop && this.left == oldLeft) {
+      return false;
+    }
+    this.version += 1;
+    return true;
+  }
+
+  // handles the keys that move the view, i.e., w a s d to pan, + and - to
+  // zoom and f to fit the board. returns whether the key moved the view
+  boolean onKey(String key) {
+    switch (key) {
+      case "w":
+        return this.pan(Wires.TOP);
+      case "d":
+        return this.pan(Wires.RIGHT);
+      case "s":
+        return this.pan(Wires.BOTTOM);
+      case "a":
+        return this.pan(Wires.LEFT);
+      case "+":
+      case "=":
+        return this.zoomIn();
+      case "-":
+        return this.zoomOut();
+      case "f":
+        this.fit();
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // the cell drawn at the given pixel, or -1 if there is none or the
+  // pixel shows a whole block of cells
+  int cellAt(int x, int y) {
+    if (this.block != 1 || x < 0 || y < 0) {
+      return -1;
+    }
+    int row = this.top + y / this.cellSize;
+    int col = this.left + x / this.cellSize;
+    if (row >= this.boardHeight || col >= this.boardWidth) {
+      return -1;
+    }
+    return row * this.boardWidth + col;
+  }
+}
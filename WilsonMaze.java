@@ -0,0 +1,34 @@
+import java.util.random.RandomGenerator;
+
+// wilson's algorithm, i.e., loop-erased random walks from every cell not yet
+// in the tree until they hit it. every spanning tree of the grid is equally
+// likely, unlike the trees of the other generators
+class WilsonMaze implements MazeGenerator {
+  // grows the tree from a random cell, one walk at a time
+  public void generate(Board board, RandomGenerator rand) {
+    int size = board.size();
+    boolean[] inTree = new boolean[size];
+    // the direction each walk last left a cell in, so loops erase themselves
+    byte[] exit = new byte[size];
+    int[] dirs = new int[4];
+    inTree[rand.nextInt(size)] = true;
+    for (int start = 0; start < size; start++) {
+      int cell = start;
+      while (!inTree[cell]) {
+        int count = 0;
+        for (int dir = Wires.TOP; dir <= Wires.LEFT; dir <<= 1) {
+          if (board.neighbor(cell, dir) >= 0) {
+            dirs[count++] = dir;
+          }
+        }
+        exit[cell] = (byte) dirs[rand.nextInt(count)];
+        cell = board.neighbor(cell, exit[cell]);
+      }
+      cell = start;
+      while (!inTree[cell]) {
+        inTree[cell] = true;
+        cell = board.link(cell, exit[cell]);
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+// helpers for the 4-bit wire masks used by the packed board representations,
+// the bits are ordered clockwise so a rotation is a single bit rotation
+final class Wires {
+  static final int TOP = 1;
+  static final int RIGHT = 2;
+  static final int BOTTOM = 4;
+  static final int LEFT = 8;
+  static final int ALL = TOP | RIGHT | BOTTOM | LEFT;
+
+  private Wires() {
+  }
+
+  // rotates the given mask by 90 degrees clockwise, the same way
+  // GamePiece.rotateHelp does
+  static int rotate(int mask) {
+    return ((mask << 1) | (mask >>> 3)) & ALL;
+  }
+
+  // rotates the given mask clockwise the given number of times
+  static int rotate(int mask, int times) {
+    int turns = times & 3;
+    return ((mask << turns) | (mask >>> (4 - turns))) & ALL;
+  }
+
+  // returns the direction facing the given one
+  static int opposite(int dir) {
+    return Wires.rotate(dir, 2);
+  }
+
+  // the wire masks of every cell of the given board, two to a byte with the
+  // earlier cell in the low half
+  static byte[] pack(Board board) {
+    byte[] packed = new byte[(board.size() + 1) / 2];
+    for (int cell = 0; cell < board.size(); cell++) {
+      packed[cell >>> 1] |= board.wires(cell) << ((cell & 1) << 2);
+    }
+    return packed;
+  }
+
+  // the wire mask of the given cell in masks packed by pack
+  static int unpack(byte[] packed, int cell) {
+    return (packed[cell >>> 1] >>> ((cell & 1) << 2)) & ALL;
+  }
+
+  // the direction of the given arrow key, or 0 if it isn't an arrow key
+  static int fromKey(String key) {
+    switch (key) {
+      case "up":
+        return TOP;
+      case "right":
+        return RIGHT;
+      case "down":
+        return BOTTOM;
+      case "left":
+        return LEFT;
+      default:
+        return 0;
+    }
+  }
+}